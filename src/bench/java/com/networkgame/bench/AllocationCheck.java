@@ -0,0 +1,62 @@
+package com.networkgame.bench;
+
+import com.networkgame.model.*;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+// Fails the benchmark run if steady-state GameState.update allocates per tick.
+public class AllocationCheck {
+    private static final int PACKET_COUNT = 2_000;
+    private static final double TICK = 1.0 / 120;
+    private static final int WARMUP_TICKS = 1_000;
+    private static final int MEASURED_TICKS = 10_000;
+    // Leaves room for one-off JIT and class-loading noise, far below one object per tick
+    private static final long MAX_ALLOCATED_BYTES = 64 * 1024;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        GameState gameState = createState();
+        for (int i = 0; i < WARMUP_TICKS; i++) {
+            gameState.update(TICK);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_TICKS; i++) {
+            gameState.update(TICK);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        System.out.printf("%d ticks allocated %d bytes (%.2f bytes/tick), %d packets and %d waves left%n",
+            MEASURED_TICKS, allocated, (double) allocated / MEASURED_TICKS,
+            gameState.getActivePackets().size(), gameState.getActiveImpactWaves().size());
+        if (allocated > MAX_ALLOCATED_BYTES) {
+            throw new AssertionError("GameState.update allocated " + allocated
+                + " bytes over " + MEASURED_TICKS + " ticks, limit is " + MAX_ALLOCATED_BYTES);
+        }
+    }
+
+    private static GameState createState() {
+        GameState gameState = new GameState();
+
+        // Systems with unconnected ports are updated every tick but never spawn
+        for (int i = 0; i < 4; i++) {
+            NetworkSystem system = new NetworkSystem(50 + i * 200, 200, 100, 200, i == 0);
+            system.addInputPort(PortType.SQUARE);
+            system.addOutputPort(PortType.TRIANGLE);
+            gameState.addSystem(system);
+        }
+
+        // Packets converge on the origin, so collisions keep happening throughout
+        Random random = new Random(42);
+        for (int i = 0; i < PACKET_COUNT; i++) {
+            double x = random.nextDouble() * 300;
+            double y = random.nextDouble() * 300;
+            gameState.addPacket(i % 2 == 0 ? new SquarePacket(x, y, null) : new TrianglePacket(x, y, null));
+        }
+        return gameState;
+    }
+}
@@ -0,0 +1,47 @@
+package com.networkgame.bench;
+
+import com.networkgame.model.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// One simulation tick at constant packet density; ns/op should grow linearly with packets.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GameStateUpdateBenchmark {
+    private static final double AREA_PER_PACKET = 400.0;
+    private static final double TICK = 1.0 / 60;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int packets;
+
+    private GameState gameState;
+
+    // Fresh state per iteration so the game timer never runs out mid-measurement
+    @Setup(Level.Iteration)
+    public void setUp() {
+        gameState = createState(packets, AREA_PER_PACKET, 42);
+    }
+
+    @Benchmark
+    public GameState update() {
+        gameState.update(TICK);
+        return gameState;
+    }
+
+    static GameState createState(int packetCount, double areaPerPacket, long seed) {
+        GameState gameState = new GameState();
+        Random random = new Random(seed);
+        double side = Math.sqrt(packetCount * areaPerPacket);
+        for (int i = 0; i < packetCount; i++) {
+            double x = random.nextDouble() * side;
+            double y = random.nextDouble() * side;
+            gameState.addPacket(i % 2 == 0 ? new SquarePacket(x, y, null) : new TrianglePacket(x, y, null));
+        }
+        return gameState;
+    }
+}
@@ -0,0 +1,79 @@
+package com.networkgame.bench;
+
+import com.networkgame.model.*;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Mouse picking of ports and wires in an editor-sized topology.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HitTestBenchmark {
+    private static final int SIZE = 4000;
+
+    @Param({"100", "5000"})
+    public int wires;
+
+    private GameState gameState;
+    private double[] xs, ys;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        gameState = new GameState();
+        gameState.setRemainingWireLength(Double.MAX_VALUE);
+        Random random = new Random(42);
+        int systems = Math.max(2, wires / 4);
+        for (int i = 0; i < systems; i++) {
+            NetworkSystem system = new NetworkSystem(random.nextDouble() * SIZE, random.nextDouble() * SIZE, 40, 60, false);
+            for (int p = 0; p < 4; p++) {
+                system.addInputPort(PortType.SQUARE);
+                system.addOutputPort(PortType.SQUARE);
+            }
+            gameState.addSystem(system);
+        }
+        List<NetworkSystem> all = gameState.getSystems();
+        for (int i = 0; i < wires; i++) {
+            // Mostly short wires to a nearby system, as players lay them
+            NetworkSystem from = all.get(i % systems);
+            NetworkSystem to = all.get((i % systems + 1 + random.nextInt(3)) % systems);
+            gameState.addConnection(from.getOutputPorts().get(i / systems % 4), to.getInputPorts().get(i / systems % 4));
+        }
+
+        xs = new double[1024];
+        ys = new double[1024];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble() * SIZE;
+            ys[i] = random.nextDouble() * SIZE;
+        }
+    }
+
+    @Benchmark
+    public Port findPort() {
+        int i = next++ & (xs.length - 1);
+        return gameState.findPortAt(xs[i], ys[i], 10, true);
+    }
+
+    @Benchmark
+    public Connection findConnection() {
+        int i = next++ & (xs.length - 1);
+        return gameState.findConnectionAt(xs[i], ys[i], 5);
+    }
+
+    // The scan the editor used before the index
+    @Benchmark
+    public Connection scanConnections() {
+        int i = next++ & (xs.length - 1);
+        for (Connection connection : gameState.getConnections()) {
+            if (connection.distanceTo(xs[i], ys[i]) < 5) {
+                return connection;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,45 @@
+package com.networkgame.bench;
+
+import com.networkgame.model.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Parsing a generated level file and building its GameState.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LevelLoadBenchmark {
+    @Param({"100", "10000"})
+    public int systems;
+
+    private String levelText;
+
+    @Setup
+    public void setUp() {
+        StringBuilder text = new StringBuilder("wire 100000\n");
+        for (int i = 0; i < systems; i++) {
+            text.append("system ").append((i % 100) * 150).append(' ').append((i / 100) * 250)
+                .append(i % 10 == 0 ? " reference\n" : "\n")
+                .append("out SQUARE SQUARE TRIANGLE\n")
+                .append("in SQUARE TRIANGLE\n");
+        }
+        text.append("packets SQUARE 5 1\npackets TRIANGLE 5 1\n");
+        levelText = text.toString();
+    }
+
+    @Benchmark
+    public LevelConfig parse() throws IOException {
+        return LevelLoader.parse(1, new BufferedReader(new StringReader(levelText)), "generated");
+    }
+
+    @Benchmark
+    public GameState parseAndBuild() throws IOException {
+        return GameState.fromLevel(parse());
+    }
+}
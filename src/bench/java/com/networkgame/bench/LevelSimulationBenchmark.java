@@ -0,0 +1,32 @@
+package com.networkgame.bench;
+
+import com.networkgame.controller.EventDrivenEngine;
+import com.networkgame.controller.SimulationEngine;
+import com.networkgame.model.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// A whole level run headless at max speed, as CI batch simulations do, stepping
+// every tick or jumping between events.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LevelSimulationBenchmark {
+    @Param({"1", "2"})
+    public int level;
+
+    @Param({"false", "true"})
+    public boolean eventDriven;
+
+    @Benchmark
+    public long runLevel() {
+        GameState gameState = GameState.fromLevel(LevelConfig.load(level));
+        if (eventDriven) {
+            return new EventDrivenEngine(gameState).runUntilGameOver();
+        }
+        return new SimulationEngine(gameState).runUntilGameOver();
+    }
+}
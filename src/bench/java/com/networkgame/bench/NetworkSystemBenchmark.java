@@ -0,0 +1,40 @@
+package com.networkgame.bench;
+
+import com.networkgame.model.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// NetworkSystem.update with every port connected, the case that scans all of them.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class NetworkSystemBenchmark {
+    @Param({"8", "64", "512"})
+    public int ports;
+
+    private NetworkSystem system;
+
+    @Setup
+    public void setUp() {
+        system = new NetworkSystem(0, 0, 100, 200, false);
+        for (int i = 0; i < ports / 2; i++) {
+            system.addInputPort(i % 2 == 0 ? PortType.SQUARE : PortType.TRIANGLE);
+            system.addOutputPort(i % 2 == 0 ? PortType.TRIANGLE : PortType.SQUARE);
+        }
+        for (Port port : system.getInputPorts()) {
+            port.setOccupied(true);
+        }
+        for (Port port : system.getOutputPorts()) {
+            port.setOccupied(true);
+        }
+    }
+
+    @Benchmark
+    public boolean update() {
+        system.update();
+        return system.isActive();
+    }
+}
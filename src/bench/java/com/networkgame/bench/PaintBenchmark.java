@@ -0,0 +1,70 @@
+package com.networkgame.bench;
+
+import com.networkgame.model.*;
+import com.networkgame.ui.GamePanel;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// GamePanel painting one frame of a level into an offscreen image.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PaintBenchmark {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+
+    @Param({"100", "1000", "10000"})
+    public int packets;
+
+    // Extra systems tiled over the panel, to show paint cost against topology size
+    @Param({"0", "500"})
+    public int extraSystems;
+
+    private GamePanel panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setUp() {
+        GameState gameState = GameState.fromLevel(LevelConfig.load(2));
+        for (int i = 0; i < extraSystems; i++) {
+            NetworkSystem system = new NetworkSystem((i % 25) * 32, (i / 25) * 30, 24, 20, false);
+            system.addInputPort(PortType.SQUARE);
+            system.addOutputPort(PortType.TRIANGLE);
+            gameState.addSystem(system);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < packets; i++) {
+            double x = random.nextDouble() * WIDTH;
+            double y = random.nextDouble() * HEIGHT;
+            gameState.addPacket(i % 2 == 0 ? new SquarePacket(x, y, null) : new TrianglePacket(x, y, null));
+        }
+        // Paused, so the panel's own timer leaves the state alone while we paint
+        gameState.setPaused(true);
+
+        panel = new GamePanel(null);
+        panel.setGameState(gameState);
+        panel.setSize(WIDTH, HEIGHT);
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        // The panel's timer would otherwise keep the EDT, and this fork, alive
+        panel.stopGameLoop();
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        panel.paint(graphics);
+        return image;
+    }
+}
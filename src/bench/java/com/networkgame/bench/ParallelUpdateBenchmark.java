@@ -0,0 +1,41 @@
+package com.networkgame.bench;
+
+import com.networkgame.model.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// One simulation tick with packet motion and collision detection on the common
+// fork/join pool against the same tick on one thread; needs several cores to gain.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParallelUpdateBenchmark {
+    private static final double AREA_PER_PACKET = 400.0;
+    private static final double TICK = 1.0 / 60;
+
+    @Param({"10000", "100000"})
+    public int packets;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private GameState gameState;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        gameState = GameStateUpdateBenchmark.createState(packets, AREA_PER_PACKET, 42);
+        if (parallel) {
+            gameState.setParallelPhysics(ForkJoinPool.commonPool(), 0);
+        }
+    }
+
+    @Benchmark
+    public GameState update() {
+        gameState.update(TICK);
+        return gameState;
+    }
+}
@@ -0,0 +1,75 @@
+package com.networkgame.bench;
+
+import com.networkgame.model.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Rewiring one link of a large mesh, which updates the routing tables in place,
+// and looking up next hops afterwards.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RoutingBenchmark {
+    private static final int SPACING = 200;
+
+    // Systems per side of the square mesh
+    @Param({"32", "100"})
+    public int side;
+
+    private GameState gameState;
+    private NetworkSystem[] systems;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        gameState = new GameState();
+        gameState.setRemainingWireLength(Double.MAX_VALUE);
+        systems = new NetworkSystem[side * side];
+        for (int i = 0; i < systems.length; i++) {
+            // Reference systems down the right-hand edge
+            systems[i] = new NetworkSystem((i % side) * SPACING, (i / side) * SPACING, 100, 100, i % side == side - 1);
+            systems[i].addInputPort(PortType.SQUARE);
+            systems[i].addInputPort(PortType.TRIANGLE);
+            systems[i].addOutputPort(PortType.SQUARE);
+            systems[i].addOutputPort(PortType.TRIANGLE);
+            gameState.addSystem(systems[i]);
+        }
+        // Each system wires right and down
+        for (int i = 0; i < systems.length; i++) {
+            if (i % side != side - 1) {
+                gameState.addConnection(systems[i].getOutputPorts().get(0), systems[i + 1].getInputPorts().get(0));
+            }
+            if (i + side < systems.length) {
+                gameState.addConnection(systems[i].getOutputPorts().get(1), systems[i + side].getInputPorts().get(1));
+            }
+        }
+        random = new Random(42);
+    }
+
+    @Benchmark
+    public Connection rewire() {
+        // Unplug a rightward wire and plug it back in
+        int i = random.nextInt(systems.length);
+        if (i % side == side - 1) i--;
+        Port start = systems[i].getOutputPorts().get(0);
+        Port end = systems[i + 1].getInputPorts().get(0);
+        for (Connection connection : gameState.getConnections()) {
+            if (connection.getStartPort() == start) {
+                gameState.removeConnection(connection);
+                break;
+            }
+        }
+        gameState.addConnection(start, end);
+        return gameState.getNextHop(systems[0], PortType.SQUARE);
+    }
+
+    @Benchmark
+    public Connection nextHop() {
+        NetworkSystem system = systems[random.nextInt(systems.length)];
+        return gameState.getNextHop(system, PortType.TRIANGLE);
+    }
+}
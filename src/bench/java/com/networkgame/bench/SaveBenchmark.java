@@ -0,0 +1,55 @@
+package com.networkgame.bench;
+
+import com.networkgame.model.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Encoding a save, the part the game loop pays for, then writing and loading it.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SaveBenchmark {
+    @Param({"1000", "100000"})
+    public int packets;
+
+    private GameState gameState;
+    private ByteBuffer encoded;
+    private Path path;
+
+    @Setup
+    public void setUp() throws IOException {
+        gameState = GameStateUpdateBenchmark.createState(packets, 400.0, 42);
+        encoded = SaveFile.encode(1, new double[3], gameState);
+        path = Files.createTempDirectory("networkgame-save").resolve("save.bin");
+        SaveFile.write(path, encoded);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(path.getParent());
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        return SaveFile.encode(1, new double[3], gameState);
+    }
+
+    @Benchmark
+    public Path write() throws IOException {
+        SaveFile.write(path, encoded);
+        return path;
+    }
+
+    @Benchmark
+    public GameState load() throws IOException {
+        return SaveFile.read(path).getGameState();
+    }
+}
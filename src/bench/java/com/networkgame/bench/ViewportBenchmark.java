@@ -0,0 +1,89 @@
+package com.networkgame.bench;
+
+import com.networkgame.model.*;
+import com.networkgame.ui.GamePanel;
+import java.awt.Graphics2D;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// GamePanel panning over a network ten times the size of the screen, so every
+// frame redraws the static layer; zoomed in only the visible part is drawn.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ViewportBenchmark {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+    private static final int GRID = 40;
+    private static final int SPACING = 200;
+
+    @Param({"20000"})
+    public int packets;
+
+    // Mouse wheel notches zoomed out; 25 brings the whole network into view
+    @Param({"0", "25"})
+    public int zoomOutNotches;
+
+    private GamePanel panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        GameState gameState = new GameState();
+        NetworkSystem[] systems = new NetworkSystem[GRID * GRID];
+        for (int i = 0; i < systems.length; i++) {
+            systems[i] = new NetworkSystem((i % GRID) * SPACING, (i / GRID) * SPACING, 100, 100, false);
+            systems[i].addInputPort(PortType.SQUARE);
+            systems[i].addOutputPort(PortType.SQUARE);
+            gameState.addSystem(systems[i]);
+        }
+        for (int i = 0; i < systems.length; i++) {
+            if (i % GRID != GRID - 1) {
+                gameState.addConnection(systems[i].getOutputPorts().get(0), systems[i + 1].getInputPorts().get(0));
+            }
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < packets; i++) {
+            double x = random.nextDouble() * GRID * SPACING;
+            double y = random.nextDouble() * GRID * SPACING;
+            gameState.addPacket(i % 2 == 0 ? new SquarePacket(x, y, null) : new TrianglePacket(x, y, null));
+        }
+        gameState.setPaused(true);
+
+        panel = new GamePanel(null);
+        panel.setGameState(gameState);
+        panel.setSize(WIDTH, HEIGHT);
+        panel.mouseWheelMoved(new MouseWheelEvent(panel, MouseEvent.MOUSE_WHEEL, 0, 0, 0, 0, 0, false,
+            MouseWheelEvent.WHEEL_UNIT_SCROLL, 1, zoomOutNotches));
+        panel.mousePressed(new MouseEvent(panel, MouseEvent.MOUSE_PRESSED, 0, InputEvent.BUTTON2_DOWN_MASK,
+            WIDTH / 2, HEIGHT / 2, 1, false, MouseEvent.BUTTON2));
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        panel.stopGameLoop();
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage panAndPaint() {
+        // A one pixel middle-button drag back and forth
+        int x = WIDTH / 2 + (++frame & 1);
+        panel.mouseDragged(new MouseEvent(panel, MouseEvent.MOUSE_DRAGGED, 0, InputEvent.BUTTON2_DOWN_MASK,
+            x, HEIGHT / 2, 0, false, MouseEvent.NOBUTTON));
+        panel.paint(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,41 @@
+package com.networkgame.model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// The collision pass alone at several packet densities (pixels of area per packet).
+// Lives in the model package to reach GameState.checkPacketCollisions.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CollisionBenchmark {
+    private static final int PACKETS = 5_000;
+
+    @Param({"25", "100", "400"})
+    public double areaPerPacket;
+
+    private GameState gameState;
+
+    // Collisions push packets apart, so the layout is rebuilt every iteration
+    @Setup(Level.Iteration)
+    public void setUp() {
+        gameState = new GameState();
+        Random random = new Random(42);
+        double side = Math.sqrt(PACKETS * areaPerPacket);
+        for (int i = 0; i < PACKETS; i++) {
+            double x = random.nextDouble() * side;
+            double y = random.nextDouble() * side;
+            gameState.addPacket(i % 2 == 0 ? new SquarePacket(x, y, null) : new TrianglePacket(x, y, null));
+        }
+    }
+
+    @Benchmark
+    public GameState checkPacketCollisions() {
+        gameState.checkPacketCollisions();
+        return gameState;
+    }
+}
@@ -0,0 +1,90 @@
+package com.networkgame.controller;
+
+import com.networkgame.model.SaveFile;
+import com.networkgame.util.IoExecutor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes saves on the I/O executor. The game loop encodes the state itself,
+ * which is quick, and hands the buffer over; the file is written and renamed
+ * into place off the loop. Only one write runs at a time, so saves land in
+ * order, and a save still waiting when the next one arrives is replaced
+ * rather than queued, so a slow disk never builds a backlog. Every save
+ * submits its own drain, so one the executor drops is picked up by the next.
+ */
+public class Autosaver {
+    public static final long DEFAULT_INTERVAL_MILLIS = 5000;
+
+    private final Path path;
+    private final long intervalNanos;
+    private final AtomicReference<ByteBuffer> pending = new AtomicReference<>();
+    private final ReentrantLock writing = new ReentrantLock();
+    private volatile CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+    private volatile long lastSaveTime = System.nanoTime();
+
+    // An interval of zero or less turns autosaving off
+    public Autosaver(Path path, long intervalMillis) {
+        this.path = path;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    public boolean isDue(long currentTime) {
+        return intervalNanos > 0 && currentTime - lastSaveTime >= intervalNanos;
+    }
+
+    // Restarts the interval, e.g. when a level starts
+    public void reset(long currentTime) {
+        lastSaveTime = currentTime;
+    }
+
+    public void save(ByteBuffer encoded, long currentTime) {
+        lastSaveTime = currentTime;
+        pending.set(encoded);
+        lastWrite = CompletableFuture.runAsync(this::writePending, IoExecutor.get());
+    }
+
+    // A drain that finds the slot already emptied by an earlier one has nothing to do
+    private void writePending() {
+        writing.lock();
+        try {
+            ByteBuffer encoded;
+            while ((encoded = pending.getAndSet(null)) != null) {
+                try {
+                    SaveFile.write(path, encoded);
+                } catch (IOException e) {
+                    System.err.println("Error writing autosave: " + e.getMessage());
+                }
+            }
+        } finally {
+            writing.unlock();
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Lets a save already handed over reach the disk before the game exits
+    public void close() {
+        // Waiting with nothing writing: its drain has not started or was dropped, so write it here
+        if (!writing.isLocked() && pending.get() != null) {
+            writePending();
+        }
+        if (!writing.isLocked()) return;
+        try {
+            lastWrite.get(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Error finishing autosave: " + e.getMessage());
+        }
+    }
+}
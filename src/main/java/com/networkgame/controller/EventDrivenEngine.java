@@ -0,0 +1,86 @@
+package com.networkgame.controller;
+
+import com.networkgame.model.GameState;
+
+/**
+ * Runs a GameState headless as a discrete-event simulation. Whenever the state
+ * is quiescent (every packet stalled or cruising along a wire at top speed) the
+ * ticks of the next events are worked out from the clocks, wave ages, speeds
+ * and remaining wire lengths: the game timer running out, the next spawn, a
+ * packet reaching a corner or its braking distance, a wave fading out, and the
+ * earliest moment two packets or a wave front and a packet could meet. The
+ * engine jumps straight to the earliest and steps that tick like any other.
+ * Packets speeding up, braking or colliding are stepped tick by tick, and the
+ * jumps are exact, so a run ends in exactly the state SimulationEngine reaches
+ * with the same step.
+ */
+public class EventDrivenEngine {
+    private final GameState gameState;
+    private final double timeStep;
+    private long tick;
+    private long stepCount;
+    private long skippedCount;
+
+    public EventDrivenEngine(GameState gameState) {
+        this(gameState, SimulationEngine.DEFAULT_TIME_STEP);
+    }
+
+    public EventDrivenEngine(GameState gameState, double timeStep) {
+        if (timeStep <= 0) {
+            throw new IllegalArgumentException("Time step must be positive: " + timeStep);
+        }
+        this.gameState = gameState;
+        this.timeStep = timeStep;
+    }
+
+    // Covers the given simulated time, or less if the game ends; returns the ticks covered
+    public long runFor(double simulatedSeconds) {
+        long start = tick;
+        long target = simulatedSeconds == Double.POSITIVE_INFINITY
+            ? Long.MAX_VALUE : tick + (long) Math.ceil(simulatedSeconds / timeStep);
+        while (tick < target && !gameState.isGameOver() && !gameState.isPaused()) {
+            if (gameState.isQuiescent()) {
+                long next = Math.min(nextEventTick(), target);
+                // Skips up to the tick before the event; the state itself stops early if its clocks disagree
+                int skipped = gameState.skipQuiescentTicks((int) Math.min(Integer.MAX_VALUE, next - tick - 1), timeStep);
+                tick += skipped;
+                skippedCount += skipped;
+                if (tick >= target) break;
+            }
+            gameState.update(timeStep);
+            stepCount++;
+            tick++;
+        }
+        return tick - start;
+    }
+
+    public long runUntilGameOver() {
+        return runFor(Double.POSITIVE_INFINITY);
+    }
+
+    // The tick of the earliest event due from the current clocks, or Long.MAX_VALUE if
+    // none is. Any step may change them all, and only the earliest is ever used, so they
+    // are worked out afresh for every quiet stretch and scanned rather than queued
+    private long nextEventTick() {
+        long next = Long.MAX_VALUE;
+        next = earliest(next, gameState.getRemainingTime());
+        next = earliest(next, gameState.getTimeUntilSpawn());
+        next = earliest(next, gameState.getTimeUntilArrival());
+        next = earliest(next, gameState.getTimeUntilWaveExpiry());
+        return earliest(next, gameState.getTimeUntilContact());
+    }
+
+    private long earliest(long next, double time) {
+        return time == Double.POSITIVE_INFINITY ? next : Math.min(next, tick + ticksUntil(time));
+    }
+
+    private long ticksUntil(double time) {
+        return Math.max(1, (long) Math.ceil(time / timeStep));
+    }
+
+    public long getTick() { return tick; }
+    public long getStepCount() { return stepCount; }
+    public long getSkippedCount() { return skippedCount; }
+    public double getTimeStep() { return timeStep; }
+    public GameState getGameState() { return gameState; }
+}
@@ -2,11 +2,16 @@ package com.networkgame.controller;
 
 import com.networkgame.model.*;
 import com.networkgame.ui.*;
+import com.networkgame.util.IoExecutor;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import javax.sound.sampled.*;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class GameController {
     private JFrame mainFrame;
@@ -16,12 +21,17 @@ public class GameController {
     private MainMenuPanel menuPanel;
     private SettingsPanel settingsPanel;
     private LevelSelectPanel levelSelectPanel;
-    private GameState gameState;
+    // Read by the game loop, which may run on the render thread
+    private volatile GameState gameState;
     private Clip backgroundMusic;
+    private volatile SoundBank soundBank;
     private float volume = 0.5f;
-    private int currentLevel = 1;
-    private static final int MAX_LEVELS = 2;
-    private boolean isLevelCompleted = false;
+    private volatile int currentLevel = 1;
+    private volatile boolean isLevelCompleted = false;
+    // Bumped by every level start, so a slower earlier load cannot replace a later one
+    private int levelRequest;
+    private final Autosaver autosaver = new Autosaver(SaveFile.getAutosavePath(),
+        Long.getLong("networkgame.autosave.interval", Autosaver.DEFAULT_INTERVAL_MILLIS));
 
     public GameController() {
         initializeUI();
@@ -64,28 +74,120 @@ public class GameController {
         mainFrame.setVisible(true);
     }
 
+    // Opening audio lines and decoding clips happens on the I/O executor; the
+    // window is usable meanwhile and sounds simply start once they are ready
     private void loadSounds() {
+        float initialVolume = volume;
+        IoExecutor.get().execute(() -> {
+            // Effects are decoded once here and replayed from memory
+            SoundBank bank = new SoundBank(initialVolume);
+            bank.load();
+
+            Clip music = null;
+            try {
+                // Load background music
+                AudioInputStream audioIn = AudioSystem.getAudioInputStream(
+                    getClass().getResource("/sounds/background.wav"));
+                music = AudioSystem.getClip();
+                music.open(audioIn);
+            } catch (Exception e) {
+                System.err.println("Error loading sounds: " + e.getMessage());
+                music = null;
+            }
+
+            Clip loadedMusic = music;
+            SwingUtilities.invokeLater(() -> {
+                soundBank = bank;
+                backgroundMusic = loadedMusic;
+                if (backgroundMusic != null) {
+                    backgroundMusic.loop(Clip.LOOP_CONTINUOUSLY);
+                }
+                setVolume(volume);
+            });
+        });
+    }
+
+    // The level is read and built on the I/O executor, then shown on the EDT
+    public void startGame() {
+        int level = currentLevel;
+        int request = ++levelRequest;
+        CompletableFuture.supplyAsync(() -> GameState.fromLevel(LevelConfig.load(level)), IoExecutor.get())
+            .whenComplete((state, error) -> SwingUtilities.invokeLater(() -> {
+                if (request != levelRequest) return;
+                if (error != null) {
+                    showError("Could not load level " + level, error);
+                    showMainMenu();
+                    return;
+                }
+                showGame(state);
+            }));
+    }
+
+    // Resumes the autosaved game, or starts the current level if there is none
+    // or it cannot be read
+    public void continueGame() {
+        Path path = autosaver.getPath();
+        int request = ++levelRequest;
+        CompletableFuture.supplyAsync(() -> readSave(path), IoExecutor.get())
+            .whenComplete((save, error) -> SwingUtilities.invokeLater(() -> {
+                if (request != levelRequest) return;
+                if (error != null) {
+                    showError("Could not load the saved game", error);
+                }
+                if (save == null) {
+                    startGame();
+                    return;
+                }
+                currentLevel = save.getLevel();
+                showGame(save.getGameState());
+                gamePanel.restoreEffects(save.getEffectSecondsLeft());
+            }));
+    }
+
+    private static SaveFile readSave(Path path) {
+        if (!Files.isRegularFile(path)) return null;
         try {
-            // Load background music
-            AudioInputStream audioIn = AudioSystem.getAudioInputStream(
-                getClass().getResource("/sounds/background.wav"));
-            backgroundMusic = AudioSystem.getClip();
-            backgroundMusic.open(audioIn);
-            backgroundMusic.loop(Clip.LOOP_CONTINUOUSLY);
-            setVolume(volume);
-        } catch (Exception e) {
-            System.err.println("Error loading sounds: " + e.getMessage());
+            return SaveFile.read(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
-    public void startGame() {
-        gameState = new GameState();
-        initializeLevel(currentLevel);
+    private void showError(String what, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof UncheckedIOException) {
+            cause = cause.getCause();
+        }
+        System.err.println(what + ": " + cause.getMessage());
+        JOptionPane.showMessageDialog(mainFrame, what + ":\n" + cause.getMessage(), "Error",
+            JOptionPane.ERROR_MESSAGE);
+    }
+
+    private void showGame(GameState state) {
+        gameState = state;
+        gamePanel.setGameState(state);
+        autosaver.reset(System.nanoTime());
         isLevelCompleted = false;
         cardLayout.show(mainPanel, "GAME");
         gamePanel.requestFocus();
     }
 
+    // Called by the game loop after each frame's simulation, with the state held.
+    // Saves are handed off as an encoded copy so the loop never waits on the disk.
+    public void gameTicked(GameState state, long currentTime) {
+        if (state != gameState || state.isGameOver() || !autosaver.isDue(currentTime)) return;
+        autosaver.save(SaveFile.encode(currentLevel, gamePanel.getEffectSecondsLeft(currentTime), state), currentTime);
+    }
+
+    public void startLevel(int level) {
+        currentLevel = level;
+        startGame();
+    }
+
+    public int getLevelCount() {
+        return LevelLoader.getDefault().getLevelCount();
+    }
+
     public void showMainMenu() {
         cardLayout.show(mainPanel, "MENU");
     }
@@ -100,6 +202,9 @@ public class GameController {
 
     public void setVolume(float volume) {
         this.volume = volume;
+        if (soundBank != null) {
+            soundBank.setVolume(volume);
+        }
         if (backgroundMusic != null) {
             FloatControl gainControl = (FloatControl) backgroundMusic.getControl(FloatControl.Type.MASTER_GAIN);
             float dB = (float) (Math.log(volume) / Math.log(10.0) * 20.0);
@@ -111,57 +216,8 @@ public class GameController {
         return volume;
     }
 
-    private void initializeLevel(int level) {
-        gameState = new GameState();
-        LevelConfig levelConfig = new LevelConfig(level);
-        
-        // Set initial wire length
-        gameState.setRemainingWireLength(levelConfig.getInitialWireLength());
-        
-        // Create systems
-        for (LevelConfig.SystemConfig sysConfig : levelConfig.getSystems()) {
-            NetworkSystem system = new NetworkSystem(
-                sysConfig.getX(),
-                sysConfig.getY(),
-                100, 200,
-                sysConfig.isReference()
-            );
-            
-            // Configure ports
-            for (PortType type : sysConfig.getInputPorts()) {
-                system.addInputPort(type);
-            }
-            for (PortType type : sysConfig.getOutputPorts()) {
-                system.addOutputPort(type);
-            }
-            
-            gameState.addSystem(system);
-        }
-        
-        // Initialize packets
-        for (LevelConfig.PacketConfig packetConfig : levelConfig.getPackets()) {
-            NetworkSystem targetSystem = null;
-            if (packetConfig.getSystemId() > 0) {
-                targetSystem = gameState.getSystems().get(packetConfig.getSystemId() - 1);
-            }
-            
-            for (int i = 0; i < packetConfig.getCount(); i++) {
-                Packet packet;
-                if (packetConfig.getType() == PortType.SQUARE) {
-                    packet = new SquarePacket(0, 0, null);
-                } else {
-                    packet = new TrianglePacket(0, 0, null);
-                }
-                
-                if (targetSystem != null) {
-                    targetSystem.storePacket(packet);
-                }
-            }
-        }
-    }
-
     public void nextLevel() {
-        if (currentLevel < MAX_LEVELS) {
+        if (currentLevel < getLevelCount()) {
             currentLevel++;
             startGame();
         } else {
@@ -171,17 +227,8 @@ public class GameController {
     }
 
     public void playSound(String soundName) {
-        try {
-            AudioInputStream audioIn = AudioSystem.getAudioInputStream(
-                getClass().getResource("/sounds/" + soundName + ".wav"));
-            Clip clip = AudioSystem.getClip();
-            clip.open(audioIn);
-            FloatControl gainControl = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-            float dB = (float) (Math.log(volume) / Math.log(10.0) * 20.0);
-            gainControl.setValue(dB);
-            clip.start();
-        } catch (Exception e) {
-            System.err.println("Error playing sound: " + e.getMessage());
+        if (soundBank != null) {
+            soundBank.play(soundName);
         }
     }
 
@@ -189,6 +236,10 @@ public class GameController {
         if (backgroundMusic != null) {
             backgroundMusic.stop();
         }
+        if (soundBank != null) {
+            soundBank.close();
+        }
+        autosaver.close();
         System.exit(0);
     }
 
@@ -0,0 +1,134 @@
+package com.networkgame.controller;
+
+import com.networkgame.model.GameState;
+
+/**
+ * Advances a GameState in fixed time steps, independent of any display.
+ * Real elapsed time is fed into an accumulator and drained one step at a time;
+ * renderers use the leftover fraction to interpolate between the last two states.
+ */
+public class SimulationEngine {
+    public static final double DEFAULT_TIME_STEP = 1.0 / 60;
+    // Caps catch-up work after a long stall so the loop cannot spiral
+    private static final int MAX_STEPS_PER_ADVANCE = 8;
+
+    private final GameState gameState;
+    private final double timeStep;
+    private double accumulator;
+    private long stepCount;
+    private volatile boolean maxSpeed;
+    private volatile boolean running;
+    private Thread thread;
+
+    public SimulationEngine(GameState gameState) {
+        this(gameState, DEFAULT_TIME_STEP);
+    }
+
+    public SimulationEngine(GameState gameState, double timeStep) {
+        if (timeStep <= 0) {
+            throw new IllegalArgumentException("Time step must be positive: " + timeStep);
+        }
+        this.gameState = gameState;
+        this.timeStep = timeStep;
+    }
+
+    // Feeds real elapsed time and runs as many whole steps as it covers
+    public synchronized int advance(double elapsedSeconds) {
+        if (gameState.isPaused()) {
+            return 0;
+        }
+        accumulator += Math.max(0, elapsedSeconds);
+        int steps = 0;
+        while (accumulator >= timeStep && steps < MAX_STEPS_PER_ADVANCE && !gameState.isGameOver()) {
+            step();
+            accumulator -= timeStep;
+            steps++;
+        }
+        if (steps == MAX_STEPS_PER_ADVANCE) {
+            accumulator = Math.min(accumulator, timeStep);
+        }
+        return steps;
+    }
+
+    public synchronized void step() {
+        gameState.update(timeStep);
+        stepCount++;
+    }
+
+    // Runs without pacing until the given simulated time has passed or the game ends
+    public synchronized int runFor(double simulatedSeconds) {
+        int steps = 0;
+        long target = (long)Math.ceil(simulatedSeconds / timeStep);
+        while (steps < target && !gameState.isGameOver() && !gameState.isPaused()) {
+            step();
+            steps++;
+        }
+        return steps;
+    }
+
+    public int runUntilGameOver() {
+        return runFor(Double.POSITIVE_INFINITY);
+    }
+
+    // Runs the simulation on its own thread, paced to real time unless max speed is on
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::runLoop, "simulation-engine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+            thread = null;
+        }
+        if (current != null && current != Thread.currentThread()) {
+            current.interrupt();
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void runLoop() {
+        long lastTime = System.nanoTime();
+        while (running && !gameState.isGameOver()) {
+            if (maxSpeed) {
+                step();
+                lastTime = System.nanoTime();
+                continue;
+            }
+
+            long currentTime = System.nanoTime();
+            advance((currentTime - lastTime) / 1_000_000_000.0);
+            lastTime = currentTime;
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        running = false;
+    }
+
+    // Fraction of a step accumulated since the last update, in [0, 1)
+    public synchronized double getInterpolationAlpha() {
+        return Math.min(1.0, accumulator / timeStep);
+    }
+
+    public void setMaxSpeed(boolean maxSpeed) {
+        this.maxSpeed = maxSpeed;
+    }
+
+    public boolean isMaxSpeed() { return maxSpeed; }
+    public boolean isRunning() { return running; }
+    public synchronized long getStepCount() { return stepCount; }
+    public double getTimeStep() { return timeStep; }
+    public GameState getGameState() { return gameState; }
+}
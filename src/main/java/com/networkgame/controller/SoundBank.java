@@ -0,0 +1,316 @@
+package com.networkgame.controller;
+
+import javax.sound.sampled.*;
+import java.io.*;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Sound effects decoded once into PCM and played through a fixed pool of
+ * open lines. Every sound is converted to one output format at load time, so
+ * any voice can play any sound without reopening its line; when all voices are
+ * busy the one that started first is cut off and reused. The effects are
+ * whatever .wav files the sounds resource directory holds, each played under
+ * its file name without the extension.
+ */
+public class SoundBank {
+    private static final String DIRECTORY = "sounds/";
+    private static final String EXTENSION = ".wav";
+    // Looped as a Clip by GameController rather than played as an effect
+    private static final String MUSIC = "background";
+    private static final AudioFormat FORMAT = new AudioFormat(44100f, 16, 2, true, false);
+    private static final int VOICE_COUNT = 8;
+    private static final int CHUNK_BYTES = 4096;
+
+    private final Map<String, byte[]> sounds = new HashMap<>();
+    private final Voice[] voices;
+    private volatile float volume;
+
+    public SoundBank(float volume) {
+        this(volume, openLines());
+    }
+
+    // Plays through the given lines, already open and started in FORMAT
+    SoundBank(float volume, SourceDataLine[] lines) {
+        this.volume = volume;
+        this.voices = new Voice[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            voices[i] = new Voice(lines[i], i);
+        }
+    }
+
+    public void load() {
+        List<String> names;
+        try {
+            names = clipNames(SoundBank.class.getResource("/" + DIRECTORY));
+        } catch (IOException | URISyntaxException e) {
+            System.err.println("Error listing sounds: " + e.getMessage());
+            return;
+        }
+        for (String name : names) {
+            String resource = "/" + DIRECTORY + name + EXTENSION;
+            try (InputStream in = SoundBank.class.getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new FileNotFoundException(resource);
+                }
+                add(name, decode(in));
+            } catch (Exception e) {
+                System.err.println("Error loading sound " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Makes already decoded PCM in FORMAT playable under the given name
+    void add(String name, byte[] pcm) {
+        sounds.put(name, pcm);
+    }
+
+    public void play(String soundName) {
+        byte[] data = sounds.get(soundName);
+        if (data == null || voices.length == 0) return;
+        pickVoice().play(data);
+    }
+
+    public void setVolume(float volume) {
+        this.volume = volume;
+        for (Voice voice : voices) {
+            voice.applyGain();
+        }
+    }
+
+    public void close() {
+        for (Voice voice : voices) {
+            voice.close();
+        }
+    }
+
+    // An idle voice if there is one, otherwise the one that has been playing longest
+    private synchronized Voice pickVoice() {
+        Voice oldest = voices[0];
+        for (Voice voice : voices) {
+            if (!voice.isPlaying()) {
+                return voice;
+            }
+            if (voice.startedAt < oldest.startedAt) {
+                oldest = voice;
+            }
+        }
+        return oldest;
+    }
+
+    private static SourceDataLine[] openLines() {
+        SourceDataLine[] opened = new SourceDataLine[VOICE_COUNT];
+        try {
+            for (int i = 0; i < VOICE_COUNT; i++) {
+                opened[i] = AudioSystem.getSourceDataLine(FORMAT);
+                opened[i].open(FORMAT);
+                opened[i].start();
+            }
+            return opened;
+        } catch (Exception e) {
+            // No usable mixer (e.g. headless machines): sound effects are silently skipped
+            System.err.println("Error opening audio lines: " + e.getMessage());
+            for (SourceDataLine line : opened) {
+                if (line != null) {
+                    line.close();
+                }
+            }
+            return new SourceDataLine[0];
+        }
+    }
+
+    // Names of the effects in a sounds directory, on disk or inside a jar, sorted;
+    // none if there is no such directory
+    static List<String> clipNames(URL directory) throws IOException, URISyntaxException {
+        List<String> names = new ArrayList<>();
+        if (directory == null) return names;
+        if (directory.getProtocol().equals("jar")) {
+            JarURLConnection connection = (JarURLConnection) directory.openConnection();
+            connection.setUseCaches(false);
+            String prefix = connection.getEntryName() == null ? "" : connection.getEntryName();
+            try (JarFile jar = connection.getJarFile()) {
+                for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+                    String entry = entries.nextElement().getName();
+                    if (entry.startsWith(prefix) && entry.indexOf('/', prefix.length()) < 0) {
+                        addClipName(names, entry.substring(prefix.length()));
+                    }
+                }
+            }
+        } else {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(directory.toURI()))) {
+                for (Path file : files) {
+                    if (Files.isRegularFile(file)) {
+                        addClipName(names, file.getFileName().toString());
+                    }
+                }
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static void addClipName(List<String> names, String fileName) {
+        if (fileName.endsWith(EXTENSION)) {
+            String name = fileName.substring(0, fileName.length() - EXTENSION.length());
+            if (!name.isEmpty() && !name.equals(MUSIC)) {
+                names.add(name);
+            }
+        }
+    }
+
+    // Any format Java Sound reads, as PCM in FORMAT
+    static byte[] decode(InputStream in) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(new BufferedInputStream(in))) {
+            AudioFormat sourceFormat = source.getFormat();
+            AudioFormat pcmFormat = new AudioFormat(
+                sourceFormat.getSampleRate(), 16, sourceFormat.getChannels(), true, false);
+            try (AudioInputStream pcm = AudioSystem.getAudioInputStream(pcmFormat, source)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[CHUNK_BYTES];
+                int read;
+                while ((read = pcm.read(buffer)) > 0) {
+                    out.write(buffer, 0, read);
+                }
+                return toOutputFormat(out.toByteArray(), pcmFormat);
+            }
+        }
+    }
+
+    // Resamples (linearly) and up/down-mixes 16-bit PCM to the shared output format
+    private static byte[] toOutputFormat(byte[] pcm, AudioFormat format) {
+        int channels = format.getChannels();
+        int frames = pcm.length / (2 * channels);
+        if (frames == 0) return new byte[0];
+        double step = format.getSampleRate() / FORMAT.getSampleRate();
+        int outFrames = (int)(frames / step);
+        byte[] out = new byte[outFrames * 4];
+
+        for (int f = 0; f < outFrames; f++) {
+            double position = f * step;
+            int index = Math.min((int) position, frames - 1);
+            int next = Math.min(index + 1, frames - 1);
+            double t = position - index;
+            for (int c = 0; c < 2; c++) {
+                int sourceChannel = Math.min(c, channels - 1);
+                double a = sample(pcm, index * channels + sourceChannel);
+                double b = sample(pcm, next * channels + sourceChannel);
+                int value = (int) Math.round(a + (b - a) * t);
+                out[f * 4 + c * 2] = (byte) value;
+                out[f * 4 + c * 2 + 1] = (byte) (value >> 8);
+            }
+        }
+        return out;
+    }
+
+    private static int sample(byte[] pcm, int index) {
+        return (pcm[index * 2 + 1] << 8) | (pcm[index * 2] & 0xff);
+    }
+
+    private class Voice implements Runnable {
+        private final SourceDataLine line;
+        private final FloatControl gainControl;
+        private final byte[] scaled = new byte[CHUNK_BYTES];
+        private byte[] data;
+        private int position;
+        private volatile long startedAt;
+        private volatile boolean open = true;
+
+        Voice(SourceDataLine line, int index) {
+            this.line = line;
+            this.gainControl = line.isControlSupported(FloatControl.Type.MASTER_GAIN)
+                ? (FloatControl) line.getControl(FloatControl.Type.MASTER_GAIN)
+                : null;
+            applyGain();
+            Thread thread = new Thread(this, "sound-voice-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        synchronized void play(byte[] sound) {
+            if (data != null) {
+                // Stealing: drop whatever is still queued in the line
+                line.flush();
+            }
+            data = sound;
+            position = 0;
+            startedAt = System.nanoTime();
+            notifyAll();
+        }
+
+        synchronized boolean isPlaying() {
+            return data != null;
+        }
+
+        void applyGain() {
+            if (gainControl != null) {
+                float dB = (float) (Math.log(Math.max(volume, 0.0001f)) / Math.log(10.0) * 20.0);
+                gainControl.setValue(Math.max(gainControl.getMinimum(), Math.min(gainControl.getMaximum(), dB)));
+            }
+        }
+
+        @Override
+        public void run() {
+            while (open) {
+                byte[] chunkSource;
+                int offset;
+                int length;
+                synchronized (this) {
+                    while (open && data == null) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (!open) return;
+                    chunkSource = data;
+                    offset = position;
+                    length = Math.min(CHUNK_BYTES, data.length - position);
+                    position += length;
+                    if (position >= data.length) {
+                        data = null;
+                    }
+                }
+                write(chunkSource, offset, length);
+            }
+        }
+
+        private void write(byte[] source, int offset, int length) {
+            if (gainControl != null) {
+                line.write(source, offset, length);
+                return;
+            }
+            // No hardware gain: scale the samples on the way out instead
+            float gain = volume;
+            for (int i = 0; i + 1 < length; i += 2) {
+                int value = (int) (((source[offset + i + 1] << 8) | (source[offset + i] & 0xff)) * gain);
+                scaled[i] = (byte) value;
+                scaled[i + 1] = (byte) (value >> 8);
+            }
+            line.write(scaled, 0, length);
+        }
+
+        void close() {
+            synchronized (this) {
+                open = false;
+                data = null;
+                notifyAll();
+            }
+            line.stop();
+            line.close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.networkgame.model;
+
+import java.io.DataOutput;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+
+/**
+ * DataOutput into a growable heap ByteBuffer. Each value is one bulk put
+ * instead of DataOutputStream's byte-at-a-time writes, which dominate encoding
+ * a large state; the bytes come out in the same big-endian layout.
+ */
+class BufferOutput implements DataOutput {
+    private ByteBuffer buffer;
+
+    BufferOutput(int capacity) {
+        buffer = ByteBuffer.allocate(capacity);
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+        return buffer;
+    }
+
+    int size() {
+        return buffer.position();
+    }
+
+    // Starts over, keeping the storage
+    void reset() {
+        buffer.clear();
+    }
+
+    // Backing storage; the first size() bytes are what was written
+    byte[] array() {
+        return buffer.array();
+    }
+
+    void putInt(int index, int value) {
+        buffer.putInt(index, value);
+    }
+
+    // What was written, as a read-only view; the writer must not be used afterwards
+    ByteBuffer toBuffer() {
+        ByteBuffer written = buffer.duplicate();
+        written.flip();
+        return written.asReadOnlyBuffer();
+    }
+
+    @Override public void write(int b) { ensure(1).put((byte) b); }
+    @Override public void write(byte[] b) { write(b, 0, b.length); }
+    @Override public void write(byte[] b, int off, int len) { ensure(len).put(b, off, len); }
+    @Override public void writeBoolean(boolean v) { ensure(1).put((byte) (v ? 1 : 0)); }
+    @Override public void writeByte(int v) { ensure(1).put((byte) v); }
+    @Override public void writeShort(int v) { ensure(2).putShort((short) v); }
+    @Override public void writeChar(int v) { ensure(2).putChar((char) v); }
+    @Override public void writeInt(int v) { ensure(4).putInt(v); }
+    @Override public void writeLong(long v) { ensure(8).putLong(v); }
+    @Override public void writeFloat(float v) { ensure(4).putFloat(v); }
+    @Override public void writeDouble(double v) { ensure(8).putDouble(v); }
+
+    @Override
+    public void writeBytes(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            writeByte(s.charAt(i));
+        }
+    }
+
+    @Override
+    public void writeChars(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            writeChar(s.charAt(i));
+        }
+    }
+
+    // Same as DataOutputStream: an unsigned short byte count, then modified UTF-8
+    @Override
+    public void writeUTF(String s) throws UTFDataFormatException {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        if (length > 0xFFFF) {
+            throw new UTFDataFormatException("Encoded string too long: " + length + " bytes");
+        }
+        ByteBuffer out = ensure(2 + length);
+        out.putShort((short) length);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                out.put((byte) c);
+            } else if (c <= 0x07FF) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+}
@@ -1,43 +1,193 @@
 package com.networkgame.model;
 
+import com.networkgame.util.RenderCache;
 import java.awt.*;
 import java.awt.geom.Line2D;
-import java.awt.geom.Point2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 
+/**
+ * A wire between an output and an input port, laid out as a polyline. Curved
+ * paths are flattened into segments once, and the wire length up to every
+ * vertex is tabled, so a point at a given distance along the wire is a lookup
+ * and a linear blend.
+ */
 public class Connection {
+    // Largest gap allowed between a curve and the segments standing in for it
+    private static final double FLATNESS = 0.5;
+
     private Port startPort;
     private Port endPort;
-    private Line2D line;
+    private double[] pointX, pointY;
+    // Wire length from the start port to each vertex, and each segment's unit direction
+    private double[] arcLength;
+    private double[] directionX, directionY;
+    private double length;
+    private Shape shape;
     private boolean isActive;
     private Color color;
 
     public Connection(Port startPort, Port endPort) {
+        this(startPort, endPort,
+            new double[] {startPort.getX(), endPort.getX()},
+            new double[] {startPort.getY(), endPort.getY()});
+    }
+
+    // Routed along shape, which should run from the start port to the end port;
+    // the ends are pinned to the ports either way
+    public Connection(Port startPort, Port endPort, Shape shape) {
+        this(startPort, endPort, flatten(shape, startPort, endPort));
+    }
+
+    private Connection(Port startPort, Port endPort, double[][] points) {
+        this(startPort, endPort, points[0], points[1]);
+    }
+
+    Connection(Port startPort, Port endPort, double[] pointX, double[] pointY) {
         this.startPort = startPort;
         this.endPort = endPort;
         this.isActive = true;
         this.color = Color.BLACK;
-        updateLine();
+        setPoints(pointX, pointY);
+    }
+
+    private void setPoints(double[] xs, double[] ys) {
+        pointX = xs;
+        pointY = ys;
+        arcLength = new double[xs.length];
+        directionX = new double[xs.length - 1];
+        directionY = new double[xs.length - 1];
+        Path2D path = new Path2D.Double(Path2D.WIND_NON_ZERO, xs.length);
+        path.moveTo(xs[0], ys[0]);
+        for (int i = 1; i < xs.length; i++) {
+            double dx = xs[i] - xs[i - 1];
+            double dy = ys[i] - ys[i - 1];
+            double segmentLength = Math.sqrt(dx * dx + dy * dy);
+            arcLength[i] = arcLength[i - 1] + segmentLength;
+            if (segmentLength > 0) {
+                directionX[i - 1] = dx / segmentLength;
+                directionY[i - 1] = dy / segmentLength;
+            }
+            path.lineTo(xs[i], ys[i]);
+        }
+        length = arcLength[xs.length - 1];
+        // A straight wire keeps drawing as a plain line
+        shape = xs.length == 2 ? new Line2D.Double(xs[0], ys[0], xs[1], ys[1]) : path;
     }
 
-    private void updateLine() {
-        line = new Line2D.Double(
-            startPort.getX(),
-            startPort.getY(),
-            endPort.getX(),
-            endPort.getY()
-        );
+    private static double[][] flatten(Shape shape, Port startPort, Port endPort) {
+        double[] xs = new double[16];
+        double[] ys = new double[16];
+        int count = 0;
+        xs[count] = startPort.getX();
+        ys[count++] = startPort.getY();
+        double[] coords = new double[6];
+        for (PathIterator it = shape.getPathIterator(null, FLATNESS); !it.isDone(); it.next()) {
+            int type = it.currentSegment(coords);
+            if (type == PathIterator.SEG_CLOSE) continue;
+            // Repeated points would make zero-length segments
+            if (coords[0] == xs[count - 1] && coords[1] == ys[count - 1]) continue;
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                ys = Arrays.copyOf(ys, count * 2);
+            }
+            xs[count] = coords[0];
+            ys[count++] = coords[1];
+        }
+        if (count > 1 && xs[count - 1] == endPort.getX() && ys[count - 1] == endPort.getY()) {
+            count--;
+        }
+        if (count == xs.length) {
+            xs = Arrays.copyOf(xs, count + 1);
+            ys = Arrays.copyOf(ys, count + 1);
+        }
+        xs[count] = endPort.getX();
+        ys[count++] = endPort.getY();
+        return new double[][] {Arrays.copyOf(xs, count), Arrays.copyOf(ys, count)};
     }
 
     public void draw(Graphics2D g2d) {
         if (!isActive) return;
-        
+
         g2d.setColor(color);
-        g2d.setStroke(new BasicStroke(2));
-        g2d.draw(line);
+        g2d.setStroke(RenderCache.stroke(2));
+        g2d.draw(shape);
     }
 
     public double getLength() {
-        return line.getP1().distance(line.getP2());
+        return length;
+    }
+
+    // Segment holding the point at distance along the wire. Packets only move
+    // forward, so the search walks on from the segment found last time.
+    int segmentAt(double distance, int hint) {
+        int last = arcLength.length - 2;
+        int segment = Math.min(Math.max(hint, 0), last);
+        if (distance < arcLength[segment]) {
+            int found = Arrays.binarySearch(arcLength, 0, last + 1, distance);
+            return found >= 0 ? found : Math.max(0, -found - 2);
+        }
+        while (segment < last && distance > arcLength[segment + 1]) {
+            segment++;
+        }
+        return segment;
+    }
+
+    // Distance along the wire at which the segment ends
+    double segmentEnd(int segment) {
+        return arcLength[segment + 1];
+    }
+
+    double directionX(int segment) {
+        return directionX[segment];
+    }
+
+    double directionY(int segment) {
+        return directionY[segment];
+    }
+
+    double xAt(int segment, double distance) {
+        return pointX[segment] + directionX[segment] * (distance - arcLength[segment]);
+    }
+
+    double yAt(int segment, double distance) {
+        return pointY[segment] + directionY[segment] * (distance - arcLength[segment]);
+    }
+
+    // Shortest distance from the point to any segment of the wire
+    public double distanceTo(double x, double y) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 1; i < pointX.length; i++) {
+            best = Math.min(best, Line2D.ptSegDistSq(pointX[i - 1], pointY[i - 1], pointX[i], pointY[i], x, y));
+        }
+        return Math.sqrt(best);
+    }
+
+    public boolean intersects(Rectangle2D area) {
+        for (int i = 1; i < pointX.length; i++) {
+            if (area.intersectsLine(pointX[i - 1], pointY[i - 1], pointX[i], pointY[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getPointCount() {
+        return pointX.length;
+    }
+
+    public double getPointX(int index) {
+        return pointX[index];
+    }
+
+    public double getPointY(int index) {
+        return pointY[index];
+    }
+
+    boolean hasSamePath(double[] xs, double[] ys) {
+        return Arrays.equals(pointX, xs) && Arrays.equals(pointY, ys);
     }
 
     public boolean isActive() {
@@ -56,7 +206,7 @@ public class Connection {
         return endPort;
     }
 
-    public Line2D getLine() {
-        return line;
+    public Shape getShape() {
+        return shape;
     }
-} 
\ No newline at end of file
+}
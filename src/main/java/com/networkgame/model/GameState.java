@@ -1,13 +1,24 @@
 package com.networkgame.model;
 
-import java.awt.geom.Point2D;
+import com.networkgame.util.Counter;
+import com.networkgame.util.Gauge;
+import com.networkgame.util.LatencyHistogram;
+import com.networkgame.util.MetricsRegistry;
+import com.networkgame.util.RepeatedAddition;
+import com.networkgame.util.SpatialHashGrid;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class GameState {
     private List<NetworkSystem> systems;
     private List<Connection> connections;
-    private List<Packet> activePackets;
+    private PacketStore activePackets;
     private double remainingWireLength;
     private double temporalProgress;
     private int totalPackets;
@@ -17,17 +28,67 @@ public class GameState {
     private boolean isPaused;
     private static final double PACKET_SPAWN_INTERVAL = 2.0;
     private static final double IMPACT_WAVE_DURATION = 0.5;
+    private static final PortType[] PORT_TYPES = PortType.values();
+    static final double MAX_COORDINATE = 100_000;
     private List<ImpactWave> activeImpactWaves;
+    // Expired waves kept for reuse so collisions do not allocate
+    private List<ImpactWave> impactWavePool;
+    private final WaveField waveField = new WaveField();
+    // Cleared while the Atar effect holds waves back from pushing packets
+    private boolean impactWavesEnabled = true;
     private boolean isGameOver;
     private double gameTimer;
     private static final double GAME_DURATION = 120.0; // 120 seconds
     private boolean allSystemsActive;
+    // Must be at least the largest packet size so colliding pairs share or neighbour a cell
+    private static final double COLLISION_CELL_SIZE = 8.0;
+    private final SpatialHashGrid collisionGrid = new SpatialHashGrid(COLLISION_CELL_SIZE);
+    private final ParallelPhysics.PairTest collisionTest = this::touchedAtRebuild;
+    private final SpatialHashGrid.PairVisitor touchingMarker = this::markTouching;
+    private final SpatialHashGrid.EntryVisitor candidateGatherer = this::gatherCandidate;
+    // Coarser grid for how soon moving packets could meet; pairs it does not pair up are at least a cell apart
+    private static final double CONTACT_CELL_SIZE = 64.0;
+    private final SpatialHashGrid contactGrid = new SpatialHashGrid(CONTACT_CELL_SIZE);
+    private final SpatialHashGrid.PairVisitor contactProbe = this::probeContact;
+    private double contactTime;
+    // Runs motion and collision detection across a pool for large ticks; null keeps them serial
+    private ParallelPhysics parallelPhysics;
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+    private double[] collisionXs = new double[0];
+    private double[] collisionYs = new double[0];
+    // Packets in contact once all have moved, as found by the parallel broad phase
+    private boolean[] touching = new boolean[0];
+    // Packets whose turn ended with them stopped or destroyed, which later turns pass over
+    private boolean[] retired = new boolean[0];
+    private int[] candidates = new int[16];
+    private int candidateCount, candidateOwner, candidatesAfter;
+    // Per-slot removal flags for the end-of-tick compaction
+    private boolean[] finished = new boolean[0];
+    // Whether removal keeps surviving packets in arrival order instead of swapping from the end
+    private boolean stablePacketOrder;
+    private MetricsRegistry metrics;
+    private LatencyHistogram tickTime, wavesTime, systemsTime, packetsTime, collisionsTime;
+    private Counter spawnedCount, deliveredCount, destroyedCount, collisionCount;
+    private Gauge activePacketsGauge, activeWavesGauge;
+    private RewindBuffer rewindBuffer;
+    // Bumped whenever systems, ports or wires would draw differently
+    private int topologyVersion;
+    // Positions of systems and wires in the state image, as of indexedTopology
+    private final Map<NetworkSystem, Integer> systemIndex = new IdentityHashMap<>();
+    private final Map<Connection, Integer> connectionIndex = new IdentityHashMap<>();
+    private int indexedTopology = -1;
+    // Bumped whenever a value shown in the HUD or a stored-packet label changes
+    private int hudVersion;
+    private int shownSeconds, shownProgress;
+    private final HitTestIndex hitTestIndex = new HitTestIndex();
+    private final RoutingTable routing = new RoutingTable();
 
     public GameState() {
         systems = new ArrayList<>();
         connections = new ArrayList<>();
-        activePackets = new ArrayList<>();
+        activePackets = new PacketStore();
         activeImpactWaves = new ArrayList<>();
+        impactWavePool = new ArrayList<>();
         remainingWireLength = 5000.0; // Initial wire length for level 1
         temporalProgress = 0.0;
         totalPackets = 0;
@@ -38,32 +99,103 @@ public class GameState {
         isGameOver = false;
         gameTimer = GAME_DURATION;
         allSystemsActive = false;
+        setMetrics(new MetricsRegistry());
+    }
+
+    // Binds the per-phase timers and counters of update() to a registry
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+        tickTime = metrics.histogram("tick");
+        wavesTime = metrics.histogram("tick.waves");
+        systemsTime = metrics.histogram("tick.systems");
+        packetsTime = metrics.histogram("tick.packets");
+        collisionsTime = metrics.histogram("tick.collisions");
+        spawnedCount = metrics.counter("packets.spawned");
+        deliveredCount = metrics.counter("packets.delivered");
+        destroyedCount = metrics.counter("packets.destroyed");
+        collisionCount = metrics.counter("collisions");
+        activePacketsGauge = metrics.gauge("packets.active");
+        activeWavesGauge = metrics.gauge("waves.active");
+    }
+
+    // Builds the starting state of a level without touching any UI
+    public static GameState fromLevel(LevelConfig levelConfig) {
+        GameState gameState = new GameState();
+
+        // Set initial wire length
+        gameState.setRemainingWireLength(levelConfig.getInitialWireLength());
+
+        // Create systems
+        for (LevelConfig.SystemConfig sysConfig : levelConfig.getSystems()) {
+            NetworkSystem system = new NetworkSystem(
+                sysConfig.getX(),
+                sysConfig.getY(),
+                100, 200,
+                sysConfig.isReference()
+            );
+
+            // Configure ports
+            for (PortType type : sysConfig.getInputPorts()) {
+                system.addInputPort(type);
+            }
+            for (PortType type : sysConfig.getOutputPorts()) {
+                system.addOutputPort(type);
+            }
+
+            gameState.addSystem(system);
+        }
+
+        // Initialize packets
+        for (LevelConfig.PacketConfig packetConfig : levelConfig.getPackets()) {
+            NetworkSystem targetSystem = null;
+            if (packetConfig.getSystemId() > 0) {
+                targetSystem = gameState.getSystems().get(packetConfig.getSystemId() - 1);
+            }
+
+            for (int i = 0; i < packetConfig.getCount(); i++) {
+                Packet packet;
+                if (packetConfig.getType() == PortType.SQUARE) {
+                    packet = new SquarePacket(0, 0, null);
+                } else {
+                    packet = new TrianglePacket(0, 0, null);
+                }
+
+                if (targetSystem != null) {
+                    targetSystem.storePacket(packet);
+                }
+            }
+        }
+        return gameState;
     }
 
     public void update(double deltaTime) {
         if (isPaused) return;
+        long tickStart = System.nanoTime();
 
         // Update game timer
         gameTimer -= deltaTime;
         if (gameTimer <= 0) {
-            isGameOver = true;
+            setGameOver();
             return;
         }
 
         // Update temporal progress
-        temporalProgress = Math.max(0, Math.min(1, temporalProgress));
+        temporalProgress = Math.max(0, Math.min(1, getElapsedTime() / GAME_DURATION));
+        if ((int) gameTimer != shownSeconds || (int) (temporalProgress * 100) != shownProgress) {
+            shownSeconds = (int) gameTimer;
+            shownProgress = (int) (temporalProgress * 100);
+            hudChanged();
+        }
 
-        // Update impact waves
+        // Update impact waves and let their fronts push packets
         updateImpactWaves(deltaTime);
+        if (impactWavesEnabled && !activeImpactWaves.isEmpty()) {
+            propagateImpactWaves();
+        }
+        long mark = wavesTime.recordSince(tickStart);
 
         // Check if all systems are active
-        allSystemsActive = true;
-        for (NetworkSystem system : systems) {
-            if (!system.isIndicatorOn()) {
-                allSystemsActive = false;
-                break;
-            }
-        }
+        allSystemsActive = allIndicatorsOn();
 
         // Only spawn new packets if all systems are active
         if (allSystemsActive) {
@@ -75,78 +207,429 @@ public class GameState {
         }
 
         // Update systems
-        for (NetworkSystem system : systems) {
-            system.update();
+        for (int i = 0; i < systems.size(); i++) {
+            systems.get(i).update();
         }
+        mark = systemsTime.recordSince(mark);
 
         // Update packets
-        Iterator<Packet> packetIterator = activePackets.iterator();
-        while (packetIterator.hasNext()) {
-            Packet packet = packetIterator.next();
-            packet.update(deltaTime);
-
-            // Check for collisions
-            checkPacketCollisions(packet);
-
-            // Check if packet reached destination
-            if (!packet.isMoving()) {
-                if (packet.getTargetPort() != null && 
-                    packet.getTargetPort().getParentSystem().isReferenceSystem()) {
-                    successfulPackets++;
-                    coins += packet.getReward();
-                }
-                packetIterator.remove();
+        if (parallelPhysics != null && parallelPhysics.isWorthwhile(activePackets.size())) {
+            parallelPhysics.integrate(activePackets, deltaTime);
+        } else {
+            activePackets.updateAll(deltaTime);
+        }
+        mark = packetsTime.recordSince(mark);
+
+        // Check for collisions
+        checkPacketCollisions();
+        collisionsTime.recordSince(mark);
+
+        removeFinishedPackets();
+        activePacketsGauge.set(activePackets.size());
+        activeWavesGauge.set(activeImpactWaves.size());
+        tickTime.recordSince(tickStart);
+
+        // Check for game over condition
+        if (getPacketLoss() > 50) {
+            setGameOver();
+        }
+
+        if (rewindBuffer != null) {
+            rewindBuffer.record(this);
+        }
+    }
+
+    private boolean allIndicatorsOn() {
+        for (int i = 0; i < systems.size(); i++) {
+            if (!systems.get(i).isIndicatorOn()) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            // Check if packet is destroyed
-            if (packet.isDestroyed()) {
-                packetIterator.remove();
+    // Whether update() could be jumped over for a while: every system settled and
+    // every packet either stalled short of its target or cruising along its wire.
+    // How long for is bounded by the getTimeUntil... events.
+    public boolean isQuiescent() {
+        if (isPaused || isGameOver || rewindBuffer != null || getPacketLoss() > 50) {
+            return false;
+        }
+        for (int i = 0; i < systems.size(); i++) {
+            if (!systems.get(i).isSettled()) return false;
+        }
+        for (int i = 0; i < activePackets.size(); i++) {
+            if (activePackets.noise[i] > Packet.NOISE_THRESHOLD) return false;
+            if (!activePackets.isStalled(i) && !activePackets.isCruising(i)) return false;
+        }
+        return true;
+    }
+
+    // Runs up to maxTicks updates of deltaTime while the state is quiescent, stopping
+    // before the first that would spawn, end the game, expire a wave, turn or brake a
+    // packet, or let anything touch. The clocks, wave ages and packets on their wires
+    // are advanced in closed form, leaving exactly the state as many update() calls
+    // would; returns how many ticks that was.
+    public int skipQuiescentTicks(int maxTicks, double deltaTime) {
+        if (maxTicks <= 0 || !isQuiescent()) return 0;
+
+        boolean spawning = allIndicatorsOn();
+        long ticks = Math.min(maxTicks, ticksWithin(getTimeUntilArrival(), deltaTime));
+        ticks = Math.min(ticks, ticksWithin(getTimeUntilContact(), deltaTime));
+        // The game ends once the timer reaches zero; negated, it counts up towards it
+        ticks = stepsBelow(-gameTimer, deltaTime, 0, ticks);
+        if (spawning) {
+            ticks = stepsBelow(packetSpawnTimer, deltaTime, PACKET_SPAWN_INTERVAL, ticks);
+        }
+        for (int i = 0; i < activeImpactWaves.size() && ticks > 0; i++) {
+            ImpactWave wave = activeImpactWaves.get(i);
+            ticks = stepsBelow(wave.getElapsedTime(), deltaTime, wave.getDuration(), ticks);
+        }
+        if (ticks == 0) return 0;
+
+        gameTimer = RepeatedAddition.add(gameTimer, -deltaTime, ticks);
+        if (spawning) {
+            packetSpawnTimer = RepeatedAddition.add(packetSpawnTimer, deltaTime, ticks);
+        }
+        // Everything but the last tick in closed form; the last one is stepped so
+        // waves and packets keep where they were a tick earlier
+        for (int i = 0; i < activeImpactWaves.size(); i++) {
+            ImpactWave wave = activeImpactWaves.get(i);
+            wave.restore(RepeatedAddition.add(wave.getElapsedTime(), deltaTime, ticks - 1), wave.getPreviousRadius());
+            wave.update(deltaTime);
+        }
+        for (int i = 0; i < activePackets.size(); i++) {
+            if (activePackets.speed[i] > 0) {
+                activePackets.cruise(i, ticks - 1, deltaTime);
             }
+            activePackets.update(i, deltaTime);
         }
 
-        // Check for game over condition
-        if (getPacketLoss() > 50) {
-            isGameOver = true;
+        allSystemsActive = spawning;
+        temporalProgress = Math.max(0, Math.min(1, getElapsedTime() / GAME_DURATION));
+        if ((int) gameTimer != shownSeconds || (int) (temporalProgress * 100) != shownProgress) {
+            shownSeconds = (int) gameTimer;
+            shownProgress = (int) (temporalProgress * 100);
+            hudChanged();
+        }
+        return (int) ticks;
+    }
+
+    // Whole ticks of deltaTime safely inside the given time, keeping one spare for rounding
+    private static long ticksWithin(double time, double deltaTime) {
+        if (time == Double.POSITIVE_INFINITY) return Long.MAX_VALUE;
+        return Math.max(0, (long) Math.floor(time / deltaTime) - 1);
+    }
+
+    // Most steps, up to limit, that value += step can take while every result stays below bound
+    private static long stepsBelow(double value, double step, double bound, long limit) {
+        double estimate = Math.ceil((bound - value) / step) - 1;
+        long steps = (long) Math.max(0, Math.min(limit, estimate));
+        while (steps > 0 && RepeatedAddition.add(value, step, steps) >= bound) {
+            steps--;
+        }
+        while (steps < limit && RepeatedAddition.add(value, step, steps + 1) < bound) {
+            steps++;
+        }
+        return steps;
+    }
+
+    // Simulated time until the next spawn, or infinity while some system is inactive
+    public double getTimeUntilSpawn() {
+        return allIndicatorsOn() ? PACKET_SPAWN_INTERVAL - packetSpawnTimer : Double.POSITIVE_INFINITY;
+    }
+
+    // Simulated time until the first cruising packet reaches a corner of its wire or
+    // the braking distance before its target, or infinity if none is cruising
+    public double getTimeUntilArrival() {
+        double earliest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < activePackets.size(); i++) {
+            if (activePackets.speed[i] > 0 && activePackets.isCruising(i)) {
+                earliest = Math.min(earliest, activePackets.cruiseDistance(i) / activePackets.speed[i]);
+            }
+        }
+        return earliest;
+    }
+
+    // Simulated time until the first impact wave fades out, or infinity if there are none
+    public double getTimeUntilWaveExpiry() {
+        double earliest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < activeImpactWaves.size(); i++) {
+            ImpactWave wave = activeImpactWaves.get(i);
+            earliest = Math.min(earliest, wave.getDuration() - wave.getElapsedTime());
+        }
+        return earliest;
+    }
+
+    // Lower bound on the simulated time before two packets could touch or a wave
+    // front could reach one, with every packet holding its current speed
+    public double getTimeUntilContact() {
+        double earliest = packetContactTime();
+        if (impactWavesEnabled) {
+            for (int w = 0; w < activeImpactWaves.size() && earliest > 0; w++) {
+                earliest = Math.min(earliest, waveContactTime(activeImpactWaves.get(w)));
+            }
+        }
+        return earliest;
+    }
+
+    private double packetContactTime() {
+        int count = activePackets.size();
+        if (count < 2) return Double.POSITIVE_INFINITY;
+        if (collisionXs.length < count) {
+            int capacity = Math.max(count, collisionXs.length * 2);
+            collisionXs = new double[capacity];
+            collisionYs = new double[capacity];
+        }
+        System.arraycopy(activePackets.x, 0, collisionXs, 0, count);
+        System.arraycopy(activePackets.y, 0, collisionYs, 0, count);
+        double fastest = 0;
+        double largest = 0;
+        for (int i = 0; i < count; i++) {
+            fastest = Math.max(fastest, activePackets.speed[i]);
+            largest = Math.max(largest, activePackets.size[i]);
+        }
+        // Packets in cells that are not neighbours start at least a cell apart
+        contactTime = fastest > 0 ? (CONTACT_CELL_SIZE - largest) / (2 * fastest) : Double.POSITIVE_INFINITY;
+        contactGrid.rebuild(collisionXs, collisionYs, count);
+        contactGrid.forEachCandidatePair(contactProbe);
+        return Math.max(0, contactTime);
+    }
+
+    private void probeContact(int first, int second) {
+        double dx = collisionXs[first] - collisionXs[second];
+        double dy = collisionYs[first] - collisionYs[second];
+        double gap = Math.sqrt(dx * dx + dy * dy) - (activePackets.size[first] + activePackets.size[second]) / 2;
+        double closing = activePackets.speed[first] + activePackets.speed[second];
+        if (gap <= 0) {
+            contactTime = 0;
+        } else if (closing > 0) {
+            contactTime = Math.min(contactTime, gap / closing);
         }
     }
 
+    // A front pushes packets it sweeps over inside its full radius; packets it has already
+    // passed stay clear only while they stand still
+    private double waveContactTime(ImpactWave wave) {
+        double growth = ImpactWave.MAX_RADIUS / wave.getDuration();
+        double radius = wave.getRadius();
+        double earliest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < activePackets.size() && earliest > 0; i++) {
+            double dx = activePackets.x[i] - wave.getCenterX();
+            double dy = activePackets.y[i] - wave.getCenterY();
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            double speed = activePackets.speed[i];
+            double clear;
+            if (distance <= radius) {
+                clear = speed > 0 ? 0 : Double.POSITIVE_INFINITY;
+            } else {
+                // Clear while still outside the front, or for good once out of reach
+                clear = (distance - radius) / (speed + growth);
+                if (distance >= ImpactWave.MAX_RADIUS) {
+                    clear = Math.max(clear, speed > 0
+                        ? (distance - ImpactWave.MAX_RADIUS) / speed : Double.POSITIVE_INFINITY);
+                }
+            }
+            earliest = Math.min(earliest, clear);
+        }
+        return earliest;
+    }
+
+    // Classifies every packet as delivered, destroyed or still in flight, then
+    // drops the first two in a single compaction, so a tick that removes many stays O(n)
+    private void removeFinishedPackets() {
+        int count = activePackets.size();
+        if (finished.length < count) {
+            finished = new boolean[Math.max(count, finished.length * 2)];
+        }
+        int removed = 0;
+        int delivered = 0;
+        int destroyed = 0;
+        int reward = 0;
+        for (int i = 0; i < count; i++) {
+            boolean done = false;
+            if (!activePackets.moving[i]) {
+                // Reached the end of its wire; only a reference system counts as delivery,
+                // any other system passes the packet on along its next hop if it has one
+                Port targetPort = activePackets.targetPort[i];
+                if (targetPort != null && targetPort.getParentSystem().isReferenceSystem()) {
+                    delivered++;
+                    reward += activePackets.get(i).getReward();
+                    done = true;
+                } else {
+                    done = !forward(i, targetPort);
+                }
+            } else if (activePackets.noise[i] > Packet.NOISE_THRESHOLD) {
+                destroyed++;
+                done = true;
+            }
+            finished[i] = done;
+            if (done) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            activePackets.removeAll(finished, stablePacketOrder);
+        }
+        if (delivered > 0) {
+            successfulPackets += delivered;
+            coins += reward;
+            deliveredCount.add(delivered);
+            hudChanged();
+        }
+        destroyedCount.add(destroyed);
+    }
+
+    private boolean forward(int slot, Port arrivedAt) {
+        if (arrivedAt == null || !arrivedAt.isInput()) return false;
+        Connection hop = routing.nextHop(arrivedAt.getParentSystem(), PORT_TYPES[activePackets.type[slot]]);
+        if (hop == null) return false;
+        activePackets.launch(slot, hop);
+        return true;
+    }
+
     private void updateImpactWaves(double deltaTime) {
-        Iterator<ImpactWave> waveIterator = activeImpactWaves.iterator();
-        while (waveIterator.hasNext()) {
-            ImpactWave wave = waveIterator.next();
+        for (int i = activeImpactWaves.size() - 1; i >= 0; i--) {
+            ImpactWave wave = activeImpactWaves.get(i);
             wave.update(deltaTime);
             if (wave.isExpired()) {
-                waveIterator.remove();
-            }
-        }
-    }
-
-    private void checkPacketCollisions(Packet packet) {
-        for (Packet other : activePackets) {
-            if (packet != other) {
-                double distance = Math.sqrt(
-                    Math.pow(packet.getX() - other.getX(), 2) +
-                    Math.pow(packet.getY() - other.getY(), 2)
-                );
-                
-                if (distance < (packet.getSize() + other.getSize()) / 2) {
-                    // Create impact wave at collision point
-                    Point2D impactPoint = new Point2D.Double(
-                        (packet.getX() + other.getX()) / 2,
-                        (packet.getY() + other.getY()) / 2
-                    );
-                    createImpactWave(impactPoint);
-                    
-                    // Apply impact to both packets
-                    packet.applyImpact(impactPoint, 1.0);
-                    other.applyImpact(impactPoint, 1.0);
+                // Swap-remove; wave order carries no meaning
+                int last = activeImpactWaves.size() - 1;
+                activeImpactWaves.set(i, activeImpactWaves.get(last));
+                activeImpactWaves.remove(last);
+                impactWavePool.add(wave);
+            }
+        }
+    }
+
+    private void propagateImpactWaves() {
+        waveField.rebuild(activeImpactWaves);
+        if (parallelPhysics != null && parallelPhysics.isWorthwhile(activePackets.size())) {
+            parallelPhysics.propagateWaves(activePackets, waveField);
+        } else {
+            waveField.apply(activePackets, 0, activePackets.size());
+        }
+    }
+
+    // Runs after every packet has moved. Each packet in slot order takes its turn
+    // against every other, in slot order, on live positions, as the original loop
+    // did: an impact pushes both packets about ten pixels apart at once, so later
+    // tests in the same tick see them apart and a cluster makes one wave, not one
+    // per pair. A packet stopped or destroyed by the end of its turn drops out of
+    // the turns after it. The grid only narrows down whom each packet is tested
+    // against; it is rebuilt every tick since every packet moves every tick
+    void checkPacketCollisions() {
+        int count = activePackets.size();
+        if (collisionXs.length < count) {
+            int capacity = Math.max(count, collisionXs.length * 2);
+            collisionXs = new double[capacity];
+            collisionYs = new double[capacity];
+            touching = new boolean[capacity];
+            retired = new boolean[capacity];
+        }
+        System.arraycopy(activePackets.x, 0, collisionXs, 0, count);
+        System.arraycopy(activePackets.y, 0, collisionYs, 0, count);
+        Arrays.fill(retired, 0, count, false);
+
+        // Broad phase buckets packets by cell, narrow phase compares squared distances
+        collisionGrid.rebuild(collisionXs, collisionYs, count);
+        boolean parallel = parallelPhysics != null && parallelPhysics.isWorthwhile(count);
+        if (parallel) {
+            // Contacts among packets no impact has moved yet are found in parallel;
+            // packets in none of them only need testing against those that were moved
+            Arrays.fill(touching, 0, count, false);
+            parallelPhysics.forEachCollision(collisionGrid, collisionTest, touchingMarker);
+        }
+        for (int i = 0; i < count; i++) {
+            if (!parallel || touching[i] || collisionGrid.isRelocated(i)) {
+                takeCollisionTurn(i, true);
+            } else if (collisionGrid.hasRelocated()) {
+                takeCollisionTurn(i, false);
+            }
+            retired[i] = !activePackets.moving[i] || activePackets.noise[i] > Packet.NOISE_THRESHOLD;
+        }
+    }
+
+    private void takeCollisionTurn(int packet, boolean everyone) {
+        int after = -1;
+        while (true) {
+            candidateCount = 0;
+            candidateOwner = packet;
+            candidatesAfter = after;
+            if (everyone) {
+                collisionGrid.forEachNear(activePackets.x[packet], activePackets.y[packet], candidateGatherer);
+            } else {
+                collisionGrid.forEachRelocatedNear(activePackets.x[packet], activePackets.y[packet], candidateGatherer);
+            }
+            Arrays.sort(candidates, 0, candidateCount);
+
+            int hit = -1;
+            for (int k = 0; k < candidateCount; k++) {
+                if (touches(packet, candidates[k])) {
+                    hit = candidates[k];
+                    break;
                 }
             }
+            if (hit < 0) return;
+            applyCollision(packet, hit);
+            // The packet has moved, so gather again for the rest of its turn
+            after = hit;
+            everyone = true;
         }
     }
 
-    private void createImpactWave(Point2D center) {
-        activeImpactWaves.add(new ImpactWave(center, IMPACT_WAVE_DURATION));
+    private void gatherCandidate(int other) {
+        if (other == candidateOwner || other <= candidatesAfter || retired[other]) return;
+        if (candidateCount == candidates.length) {
+            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+        }
+        candidates[candidateCount++] = other;
+    }
+
+    private void markTouching(int first, int second) {
+        touching[first] = true;
+        touching[second] = true;
+    }
+
+    // Reads only the positions the grid was built from and sizes, so it is safe to call from several threads
+    private boolean touchedAtRebuild(int first, int second) {
+        double dx = collisionXs[first] - collisionXs[second];
+        double dy = collisionYs[first] - collisionYs[second];
+        double minDistance = (activePackets.size[first] + activePackets.size[second]) / 2;
+        return dx * dx + dy * dy < minDistance * minDistance;
+    }
+
+    private boolean touches(int first, int second) {
+        double dx = activePackets.x[first] - activePackets.x[second];
+        double dy = activePackets.y[first] - activePackets.y[second];
+        double minDistance = (activePackets.size[first] + activePackets.size[second]) / 2;
+        return dx * dx + dy * dy < minDistance * minDistance;
+    }
+
+    private void applyCollision(int first, int second) {
+        collisionCount.increment();
+
+        // Create impact wave at collision point
+        double impactX = (activePackets.x[first] + activePackets.x[second]) / 2;
+        double impactY = (activePackets.y[first] + activePackets.y[second]) / 2;
+        createImpactWave(impactX, impactY);
+
+        // Apply impact to both packets
+        activePackets.applyImpact(first, impactX, impactY, 1.0);
+        activePackets.applyImpact(second, impactX, impactY, 1.0);
+        collisionGrid.relocate(first, activePackets.x[first], activePackets.y[first]);
+        collisionGrid.relocate(second, activePackets.x[second], activePackets.y[second]);
+    }
+
+    private void createImpactWave(double centerX, double centerY) {
+        ImpactWave wave;
+        if (impactWavePool.isEmpty()) {
+            wave = new ImpactWave(centerX, centerY, IMPACT_WAVE_DURATION);
+        } else {
+            wave = impactWavePool.remove(impactWavePool.size() - 1);
+            wave.reset(centerX, centerY, IMPACT_WAVE_DURATION);
+        }
+        activeImpactWaves.add(wave);
     }
 
     private void spawnPacket() {
@@ -156,7 +639,7 @@ public class GameState {
             // Find available output port
             Port outputPort = sourceSystem.findAvailableOutputPort();
             if (outputPort != null) {
-                // Create packet based on port type
+                // Create packet based on port type, sent off along the system's next hop
                 Packet packet;
                 if (outputPort.getType() == PortType.SQUARE) {
                     packet = new SquarePacket(outputPort.getX(), outputPort.getY(), null);
@@ -164,7 +647,13 @@ public class GameState {
                     packet = new TrianglePacket(outputPort.getX(), outputPort.getY(), null);
                 }
                 activePackets.add(packet);
+                Connection hop = routing.nextHop(sourceSystem, outputPort.getType());
+                if (hop != null) {
+                    activePackets.launch(activePackets.size() - 1, hop);
+                }
                 totalPackets++;
+                spawnedCount.increment();
+                hudChanged();
             }
         }
     }
@@ -179,27 +668,518 @@ public class GameState {
     }
 
     public void addConnection(Port startPort, Port endPort) {
-        double length = startPort.getPosition().distance(endPort.getPosition());
+        addConnection(new Connection(startPort, endPort));
+    }
+
+    // Lays the wire along path, e.g. a curve around a system; it costs its full length
+    public void addConnection(Port startPort, Port endPort, Shape path) {
+        addConnection(new Connection(startPort, endPort, path));
+    }
+
+    private void addConnection(Connection connection) {
+        double length = connection.getLength();
         if (length <= remainingWireLength) {
-            connections.add(new Connection(startPort, endPort));
+            connections.add(connection);
+            hitTestIndex.addConnection(connection);
+            routing.addConnection(connection);
             remainingWireLength -= length;
+            topologyChanged();
+            hudChanged();
+        }
+    }
+
+    public void removeConnection(Connection connection) {
+        if (connections.remove(connection)) {
+            hitTestIndex.removeConnection(connection);
+            routing.removeConnection(connection);
+            remainingWireLength += connection.getLength();
+            topologyChanged();
+            hudChanged();
         }
     }
 
     public void addSystem(NetworkSystem system) {
         systems.add(system);
+        system.setOwner(this);
+        routing.addSystem(system);
+        hitTestIndex.addSystem(system);
+        for (Port port : system.getInputPorts()) {
+            hitTestIndex.addPort(port);
+        }
+        for (Port port : system.getOutputPorts()) {
+            hitTestIndex.addPort(port);
+        }
+        topologyChanged();
+    }
+
+    void portAdded(Port port) {
+        hitTestIndex.addPort(port);
+        topologyChanged();
+    }
+
+    void topologyChanged() {
+        topologyVersion++;
+    }
+
+    // Nearest input or output port within radius of the point, or null
+    public Port findPortAt(double x, double y, double radius, boolean input) {
+        return hitTestIndex.nearestPort(x, y, radius, input);
+    }
+
+    // Nearest wire passing within tolerance of the point, or null
+    public Connection findConnectionAt(double x, double y, double tolerance) {
+        return hitTestIndex.nearestConnection(x, y, tolerance);
+    }
+
+    // Systems intersecting the area, appended to out in no particular order
+    public void findSystemsIn(Rectangle2D area, List<NetworkSystem> out) {
+        hitTestIndex.collectSystems(area, out);
+    }
+
+    // Wires passing through the area, appended to out in no particular order
+    public void findConnectionsIn(Rectangle2D area, List<Connection> out) {
+        hitTestIndex.collectConnections(area, out);
+    }
+
+    // Wire a packet of the given type leaves the system on towards a reference system, or null
+    public Connection getNextHop(NetworkSystem system, PortType type) {
+        return routing.nextHop(system, type);
+    }
+
+    // Total wire length from the system to the nearest reachable reference system,
+    // or infinity if no route exists
+    public double getRouteLength(NetworkSystem system) {
+        return routing.distance(system);
+    }
+
+    public int getTopologyVersion() {
+        return topologyVersion;
+    }
+
+    public void addPacket(Packet packet) {
+        activePackets.add(packet);
+        totalPackets++;
+        hudChanged();
     }
 
     public void setPaused(boolean paused) {
         isPaused = paused;
     }
 
+    // Waves keep spreading and fading while disabled, they just stop pushing packets
+    public void setImpactWavesEnabled(boolean enabled) {
+        impactWavesEnabled = enabled;
+    }
+
+    public void setStablePacketOrder(boolean stable) {
+        stablePacketOrder = stable;
+    }
+
+    // Splits packet motion and collision detection across the pool once at least
+    // threshold packets are in flight; results match a serial tick exactly
+    public void setParallelPhysics(ForkJoinPool pool, int threshold) {
+        parallelPhysics = pool == null ? null : new ParallelPhysics(pool, threshold);
+    }
+
     public void addCoins(int amount) {
         coins += amount;
+        hudChanged();
+    }
+
+    public void setRemainingWireLength(double length) {
+        remainingWireLength = length;
+        hudChanged();
+    }
+
+    private void setGameOver() {
+        if (!isGameOver) {
+            isGameOver = true;
+            hudChanged();
+        }
+    }
+
+    void hudChanged() {
+        hudVersion++;
     }
 
+    public int getHudVersion() {
+        return hudVersion;
+    }
+
+    // With a rewind buffer attached this moves the simulation to that point in time
     public void setTemporalProgress(double progress) {
-        temporalProgress = progress;
+        progress = Math.max(0, Math.min(1, progress));
+        if (rewindBuffer == null) {
+            temporalProgress = progress;
+            return;
+        }
+
+        boolean wasPaused = isPaused;
+        isPaused = false;
+        try {
+            rewindBuffer.seek(this, progress * GAME_DURATION);
+        } finally {
+            isPaused = wasPaused;
+        }
+    }
+
+    public void setRewindBuffer(RewindBuffer rewindBuffer) {
+        this.rewindBuffer = rewindBuffer;
+        if (rewindBuffer != null) {
+            rewindBuffer.record(this);
+        }
+    }
+
+    public double getElapsedTime() {
+        return GAME_DURATION - gameTimer;
+    }
+
+    // Binary image of everything update() reads or writes. Systems and ports are
+    // referenced by position, so the reader must have the same topology. Packets
+    // keep their slot order, which makes a restored state replay identically.
+    void writeState(DataOutput out) throws IOException {
+        // Rewind snapshots are taken every few ticks, so the lookups are kept until the topology changes
+        if (indexedTopology != topologyVersion) {
+            systemIndex.clear();
+            for (int i = 0; i < systems.size(); i++) {
+                systemIndex.put(systems.get(i), i);
+            }
+            connectionIndex.clear();
+            for (int i = 0; i < connections.size(); i++) {
+                connectionIndex.put(connections.get(i), i);
+            }
+            indexedTopology = topologyVersion;
+        }
+
+        out.writeDouble(remainingWireLength);
+        out.writeDouble(temporalProgress);
+        out.writeDouble(packetSpawnTimer);
+        out.writeDouble(gameTimer);
+        out.writeInt(totalPackets);
+        out.writeInt(successfulPackets);
+        out.writeInt(coins);
+        out.writeBoolean(isGameOver);
+        out.writeBoolean(allSystemsActive);
+
+        // Indexed loops, since snapshots are taken while the game runs and must not allocate
+        out.writeInt(systems.size());
+        for (int s = 0; s < systems.size(); s++) {
+            NetworkSystem system = systems.get(s);
+            out.writeBoolean(system.isActive());
+            out.writeBoolean(system.isIndicatorOn());
+            writeOccupancy(out, system.getInputPorts());
+            writeOccupancy(out, system.getOutputPorts());
+            out.writeInt(system.getStoredPackets().size());
+            // The queue's iterator is an allocation; most systems store nothing
+            if (system.getStoredPackets().isEmpty()) continue;
+            for (Packet packet : system.getStoredPackets()) {
+                writePacket(out, packet.getType(), packet.x, packet.y, packet.previousX, packet.previousY,
+                    packet.targetX, packet.targetY, packet.speed, packet.maxSpeed, packet.acceleration,
+                    packet.deceleration, packet.noise, packet.isMoving, packet.targetPort, systemIndex,
+                    -1, 0, 0);
+            }
+        }
+
+        out.writeInt(connections.size());
+        for (int c = 0; c < connections.size(); c++) {
+            Connection connection = connections.get(c);
+            writePort(out, connection.getStartPort(), systemIndex);
+            writePort(out, connection.getEndPort(), systemIndex);
+            out.writeInt(connection.getPointCount());
+            for (int i = 0; i < connection.getPointCount(); i++) {
+                out.writeDouble(connection.getPointX(i));
+                out.writeDouble(connection.getPointY(i));
+            }
+        }
+
+        PacketStore p = activePackets;
+        out.writeInt(p.size());
+        for (int i = 0; i < p.size(); i++) {
+            writePacket(out, PORT_TYPES[p.type[i]], p.x[i], p.y[i], p.previousX[i], p.previousY[i],
+                p.targetX[i], p.targetY[i], p.speed[i], p.maxSpeed[i], p.acceleration[i],
+                p.deceleration[i], p.noise[i], p.moving[i], p.targetPort[i], systemIndex,
+                p.wire[i] == null ? -1 : connectionIndex.get(p.wire[i]), p.travelled[i], p.segment[i]);
+        }
+
+        out.writeInt(activeImpactWaves.size());
+        for (int w = 0; w < activeImpactWaves.size(); w++) {
+            ImpactWave wave = activeImpactWaves.get(w);
+            out.writeDouble(wave.getCenterX());
+            out.writeDouble(wave.getCenterY());
+            out.writeDouble(wave.getDuration());
+            out.writeDouble(wave.getElapsedTime());
+            out.writeDouble(wave.getPreviousRadius());
+        }
+    }
+
+    // Counts, indices and types are checked as they are read, so a corrupt image fails
+    // with an IllegalStateException or a buffer exception instead of a huge allocation
+    // or an index error. Everything is decoded before any of it is applied, so a failed
+    // read leaves the state as it was
+    void readState(ByteBuffer in) {
+        double savedWireLength = in.getDouble();
+        double savedProgress = in.getDouble();
+        double savedSpawnTimer = in.getDouble();
+        double savedGameTimer = in.getDouble();
+        int savedTotal = in.getInt();
+        int savedSuccessful = in.getInt();
+        int savedCoins = in.getInt();
+        boolean savedGameOver = in.get() != 0;
+        boolean savedAllActive = in.get() != 0;
+
+        int systemCount = in.getInt();
+        if (systemCount != systems.size()) {
+            throw new IllegalStateException("Saved state has " + systemCount + " systems, level has " + systems.size());
+        }
+        boolean[] systemActive = new boolean[systemCount];
+        boolean[] indicatorOn = new boolean[systemCount];
+        boolean[][] inputsOccupied = new boolean[systemCount][];
+        boolean[][] outputsOccupied = new boolean[systemCount][];
+        Packet[][] stored = new Packet[systemCount][];
+        for (int s = 0; s < systemCount; s++) {
+            NetworkSystem system = systems.get(s);
+            systemActive[s] = in.get() != 0;
+            indicatorOn[s] = in.get() != 0;
+            inputsOccupied[s] = readOccupancy(in, system.getInputPorts());
+            outputsOccupied[s] = readOccupancy(in, system.getOutputPorts());
+            stored[s] = new Packet[readCount(in)];
+            for (int i = 0; i < stored[s].length; i++) {
+                // Stored packets are off any wire
+                stored[s][i] = readPacket(in, Collections.emptyList());
+            }
+        }
+
+        int connectionCount = readCount(in);
+        boolean sameConnections = connectionCount == connections.size();
+        Port[] connectionPorts = new Port[connectionCount * 2];
+        double[][] pathXs = new double[connectionCount][];
+        double[][] pathYs = new double[connectionCount][];
+        for (int i = 0; i < connectionCount; i++) {
+            connectionPorts[i * 2] = readPort(in);
+            connectionPorts[i * 2 + 1] = readPort(in);
+            if (connectionPorts[i * 2] == null || connectionPorts[i * 2 + 1] == null) {
+                throw new IllegalStateException("Wire " + i + " is missing a port");
+            }
+            int pointCount = readCount(in);
+            if (pointCount < 2) {
+                throw new IllegalStateException("Wire " + i + " has " + pointCount + " points");
+            }
+            pathXs[i] = new double[pointCount];
+            pathYs[i] = new double[pointCount];
+            for (int k = 0; k < pointCount; k++) {
+                pathXs[i][k] = readCoordinate(in);
+                pathYs[i][k] = readCoordinate(in);
+            }
+            sameConnections = sameConnections
+                && connections.get(i).getStartPort() == connectionPorts[i * 2]
+                && connections.get(i).getEndPort() == connectionPorts[i * 2 + 1]
+                && connections.get(i).hasSamePath(pathXs[i], pathYs[i]);
+        }
+        // Keep the existing Connection objects when the wiring did not change
+        List<Connection> savedConnections = connections;
+        if (!sameConnections) {
+            savedConnections = new ArrayList<>(connectionCount);
+            for (int i = 0; i < connectionCount; i++) {
+                savedConnections.add(new Connection(
+                    connectionPorts[i * 2], connectionPorts[i * 2 + 1], pathXs[i], pathYs[i]));
+            }
+        }
+
+        Packet[] packets = new Packet[readCount(in)];
+        for (int i = 0; i < packets.length; i++) {
+            packets[i] = readPacket(in, savedConnections);
+        }
+
+        int waveCount = readCount(in);
+        double[] waves = new double[waveCount * 5];
+        for (int i = 0; i < waves.length; i++) {
+            waves[i] = in.getDouble();
+        }
+
+        // Everything read; only now is the live state replaced
+        remainingWireLength = savedWireLength;
+        temporalProgress = savedProgress;
+        packetSpawnTimer = savedSpawnTimer;
+        gameTimer = savedGameTimer;
+        totalPackets = savedTotal;
+        successfulPackets = savedSuccessful;
+        coins = savedCoins;
+        isGameOver = savedGameOver;
+        hudChanged();
+        allSystemsActive = savedAllActive;
+
+        for (int s = 0; s < systemCount; s++) {
+            NetworkSystem system = systems.get(s);
+            applyOccupancy(system.getInputPorts(), inputsOccupied[s]);
+            applyOccupancy(system.getOutputPorts(), outputsOccupied[s]);
+            system.restoreStatus(systemActive[s], indicatorOn[s]);
+            system.getStoredPackets().clear();
+            Collections.addAll(system.getStoredPackets(), stored[s]);
+        }
+
+        if (!sameConnections) {
+            connections.clear();
+            hitTestIndex.clearConnections();
+            for (int i = 0; i < connectionCount; i++) {
+                Connection connection = savedConnections.get(i);
+                connections.add(connection);
+                hitTestIndex.addConnection(connection);
+            }
+            routing.rebuild(connections);
+            topologyChanged();
+        }
+
+        activePackets.clear();
+        for (Packet packet : packets) {
+            activePackets.add(packet);
+        }
+
+        impactWavePool.addAll(activeImpactWaves);
+        activeImpactWaves.clear();
+        for (int i = 0; i < waves.length; i += 5) {
+            createImpactWave(waves[i], waves[i + 1]);
+            ImpactWave wave = activeImpactWaves.get(activeImpactWaves.size() - 1);
+            wave.reset(waves[i], waves[i + 1], waves[i + 2]);
+            wave.restore(waves[i + 3], waves[i + 4]);
+        }
+    }
+
+    private static void writeOccupancy(DataOutput out, List<Port> ports) throws IOException {
+        out.writeInt(ports.size());
+        for (int i = 0; i < ports.size(); i++) {
+            out.writeBoolean(ports.get(i).isOccupied());
+        }
+    }
+
+    private static boolean[] readOccupancy(ByteBuffer in, List<Port> ports) {
+        int count = readCount(in);
+        if (count != ports.size()) {
+            throw new IllegalStateException("Saved state has " + count + " ports, system has " + ports.size());
+        }
+        boolean[] occupied = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            occupied[i] = in.get() != 0;
+        }
+        return occupied;
+    }
+
+    private static void applyOccupancy(List<Port> ports, boolean[] occupied) {
+        for (int i = 0; i < occupied.length; i++) {
+            ports.get(i).setOccupied(occupied[i]);
+        }
+    }
+
+    private static void writePacket(DataOutput out, PortType type, double x, double y,
+                                    double previousX, double previousY, double targetX, double targetY,
+                                    double speed, double maxSpeed, double acceleration, double deceleration,
+                                    double noise, boolean moving, Port targetPort, Map<NetworkSystem, Integer> systemIndex,
+                                    int wireCode, double travelled, int segment) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeDouble(x);
+        out.writeDouble(y);
+        out.writeDouble(previousX);
+        out.writeDouble(previousY);
+        out.writeDouble(targetX);
+        out.writeDouble(targetY);
+        out.writeDouble(speed);
+        out.writeDouble(maxSpeed);
+        out.writeDouble(acceleration);
+        out.writeDouble(deceleration);
+        out.writeDouble(noise);
+        out.writeBoolean(moving);
+        writePort(out, targetPort, systemIndex);
+        out.writeInt(wireCode);
+        out.writeDouble(travelled);
+        out.writeInt(segment);
+    }
+
+    // wires are those the packets' wire codes index
+    private Packet readPacket(ByteBuffer in, List<Connection> wires) {
+        PortType type = readType(in);
+        Packet packet = type == PortType.SQUARE ? new SquarePacket(0, 0, null) : new TrianglePacket(0, 0, null);
+        packet.x = in.getDouble();
+        packet.y = in.getDouble();
+        packet.previousX = in.getDouble();
+        packet.previousY = in.getDouble();
+        packet.targetX = in.getDouble();
+        packet.targetY = in.getDouble();
+        packet.speed = in.getDouble();
+        packet.maxSpeed = in.getDouble();
+        packet.acceleration = in.getDouble();
+        packet.deceleration = in.getDouble();
+        packet.noise = in.getDouble();
+        packet.isMoving = in.get() != 0;
+        packet.targetPort = readPort(in);
+        int wireCode = in.getInt();
+        packet.travelled = in.getDouble();
+        packet.segment = in.getInt();
+        if (wireCode < -1 || wireCode >= wires.size()) {
+            throw new IllegalStateException("Wire " + wireCode + " of " + wires.size());
+        }
+        if (wireCode >= 0) {
+            packet.wire = wires.get(wireCode);
+            // Segments run between consecutive points
+            if (packet.segment < 0 || packet.segment >= packet.wire.getPointCount() - 1) {
+                throw new IllegalStateException("Segment " + packet.segment + " of wire " + wireCode);
+            }
+        }
+        return packet;
+    }
+
+    static PortType readType(ByteBuffer in) {
+        int ordinal = in.get();
+        if (ordinal < 0 || ordinal >= PORT_TYPES.length) {
+            throw new IllegalStateException("Unknown packet type " + ordinal);
+        }
+        return PORT_TYPES[ordinal];
+    }
+
+    // System index (-1 for none), input/output flag, then port index
+    private static void writePort(DataOutput out, Port port, Map<NetworkSystem, Integer> systemIndex) throws IOException {
+        Integer system = port == null ? null : systemIndex.get(port.getParentSystem());
+        if (system == null) {
+            out.writeInt(-1);
+            out.writeBoolean(false);
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(system);
+        out.writeBoolean(port.isInput());
+        out.writeInt(port.getIndex());
+    }
+
+    private Port readPort(ByteBuffer in) {
+        int system = in.getInt();
+        boolean input = in.get() != 0;
+        int index = in.getInt();
+        if (system == -1) return null;
+        if (system < 0 || system >= systems.size()) {
+            throw new IllegalStateException("System " + system + " of " + systems.size());
+        }
+        NetworkSystem parent = systems.get(system);
+        List<Port> ports = input ? parent.getInputPorts() : parent.getOutputPorts();
+        if (index < 0 || index >= ports.size()) {
+            throw new IllegalStateException("Port " + index + " of " + ports.size() + " on system " + system);
+        }
+        return ports.get(index);
+    }
+
+    // Far outside any level; a corrupt wire or system could otherwise cover millions of index cells
+    static double readCoordinate(ByteBuffer in) {
+        double coordinate = in.getDouble();
+        if (!(Math.abs(coordinate) <= MAX_COORDINATE)) {
+            throw new IllegalStateException("Coordinate " + coordinate + " out of range");
+        }
+        return coordinate;
+    }
+
+    // Every element takes at least one byte, so a count beyond what is left is corrupt
+    static int readCount(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalStateException("Count " + count + " with " + in.remaining() + " bytes left");
+        }
+        return count;
     }
 
     public int getPacketLoss() {
@@ -214,12 +1194,15 @@ public class GameState {
     // Getters
     public List<NetworkSystem> getSystems() { return systems; }
     public List<Connection> getConnections() { return connections; }
-    public List<Packet> getActivePackets() { return activePackets; }
+    public List<Packet> getActivePackets() { return activePackets.asList(); }
+    PacketStore getPacketStore() { return activePackets; }
     public double getRemainingWireLength() { return remainingWireLength; }
     public double getTemporalProgress() { return temporalProgress; }
+    public double getRemainingTime() { return gameTimer; }
     public int getTotalPackets() { return totalPackets; }
     public int getSuccessfulPackets() { return successfulPackets; }
     public int getCoins() { return coins; }
     public boolean isPaused() { return isPaused; }
     public List<ImpactWave> getActiveImpactWaves() { return activeImpactWaves; }
+    public MetricsRegistry getMetrics() { return metrics; }
 } 
\ No newline at end of file
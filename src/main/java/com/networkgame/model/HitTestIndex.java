@@ -0,0 +1,203 @@
+package com.networkgame.model;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Uniform grid over port positions, system bounds and the cells each wire
+ * passes through, kept in step with the topology by GameState, so mouse
+ * picking only looks at what lies in the cells around the pointer and drawing
+ * only at what lies in the cells on screen.
+ */
+class HitTestIndex {
+    private static final double CELL_SIZE = 64;
+
+    private final Map<Long, List<Port>> ports = new HashMap<>();
+    private final Map<Long, List<Connection>> connections = new HashMap<>();
+    private final Map<Long, List<NetworkSystem>> systems = new HashMap<>();
+    // Entries spanning several cells are reported once per range query
+    private final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    void addPort(Port port) {
+        cell(ports, cellOf(port.getX()), cellOf(port.getY())).add(port);
+    }
+
+    void addSystem(NetworkSystem system) {
+        Rectangle2D bounds = system.getBounds();
+        for (int cx = cellOf(bounds.getMinX()); cx <= cellOf(bounds.getMaxX()); cx++) {
+            for (int cy = cellOf(bounds.getMinY()); cy <= cellOf(bounds.getMaxY()); cy++) {
+                cell(systems, cx, cy).add(system);
+            }
+        }
+    }
+
+    void addConnection(Connection connection) {
+        forEachCellOnPath(connection, (cx, cy) -> {
+            List<Connection> cell = cell(connections, cx, cy);
+            // Neighbouring segments both visit the cell at their shared vertex
+            if (cell.isEmpty() || cell.get(cell.size() - 1) != connection) {
+                cell.add(connection);
+            }
+        });
+    }
+
+    void removeConnection(Connection connection) {
+        forEachCellOnPath(connection, (cx, cy) -> {
+            List<Connection> cell = connections.get(key(cx, cy));
+            if (cell == null) return;
+            cell.remove(connection);
+            if (cell.isEmpty()) {
+                connections.remove(key(cx, cy));
+            }
+        });
+    }
+
+    void clearConnections() {
+        connections.clear();
+    }
+
+    // Closest input (or output) port within radius of the point, or null
+    Port nearestPort(double x, double y, double radius, boolean input) {
+        Port nearest = null;
+        double best = radius * radius;
+        for (int cx = cellOf(x - radius); cx <= cellOf(x + radius); cx++) {
+            for (int cy = cellOf(y - radius); cy <= cellOf(y + radius); cy++) {
+                List<Port> cell = ports.get(key(cx, cy));
+                if (cell == null) continue;
+                for (int i = 0; i < cell.size(); i++) {
+                    Port port = cell.get(i);
+                    if (port.isInput() != input) continue;
+                    double dx = port.getX() - x;
+                    double dy = port.getY() - y;
+                    double distance = dx * dx + dy * dy;
+                    if (distance < best) {
+                        best = distance;
+                        nearest = port;
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    // Closest wire whose segment passes within tolerance of the point, or null
+    Connection nearestConnection(double x, double y, double tolerance) {
+        Connection nearest = null;
+        double best = tolerance;
+        for (int cx = cellOf(x - tolerance); cx <= cellOf(x + tolerance); cx++) {
+            for (int cy = cellOf(y - tolerance); cy <= cellOf(y + tolerance); cy++) {
+                List<Connection> cell = connections.get(key(cx, cy));
+                if (cell == null) continue;
+                for (int i = 0; i < cell.size(); i++) {
+                    Connection connection = cell.get(i);
+                    double distance = connection.distanceTo(x, y);
+                    if (distance < best) {
+                        best = distance;
+                        nearest = connection;
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    // Systems whose bounds intersect the area, added to out
+    void collectSystems(Rectangle2D area, List<NetworkSystem> out) {
+        collect(systems, area, out, system -> system.getBounds().intersects(area));
+    }
+
+    // Wires with some part inside the area, added to out
+    void collectConnections(Rectangle2D area, List<Connection> out) {
+        collect(connections, area, out, connection -> connection.intersects(area));
+    }
+
+    private <T> void collect(Map<Long, List<T>> grid, Rectangle2D area, List<T> out, Predicate<T> inside) {
+        int minX = cellOf(area.getMinX()), maxX = cellOf(area.getMaxX());
+        int minY = cellOf(area.getMinY()), maxY = cellOf(area.getMaxY());
+        seen.clear();
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > grid.size()) {
+            // Zoomed far out the area spans more cells than are occupied; walk those instead
+            for (List<T> cell : grid.values()) {
+                collectCell(cell, out, inside);
+            }
+        } else {
+            for (int cx = minX; cx <= maxX; cx++) {
+                for (int cy = minY; cy <= maxY; cy++) {
+                    List<T> cell = grid.get(key(cx, cy));
+                    if (cell != null) {
+                        collectCell(cell, out, inside);
+                    }
+                }
+            }
+        }
+        seen.clear();
+    }
+
+    private <T> void collectCell(List<T> cell, List<T> out, Predicate<T> inside) {
+        for (int i = 0; i < cell.size(); i++) {
+            T item = cell.get(i);
+            if (seen.add(item) && inside.test(item)) {
+                out.add(item);
+            }
+        }
+    }
+
+    private interface CellVisitor {
+        void visit(int cx, int cy);
+    }
+
+    private static void forEachCellOnPath(Connection connection, CellVisitor visitor) {
+        for (int i = 1; i < connection.getPointCount(); i++) {
+            forEachCellOnSegment(connection.getPointX(i - 1), connection.getPointY(i - 1),
+                connection.getPointX(i), connection.getPointY(i), visitor);
+        }
+    }
+
+    // Grid traversal (Amanatides & Woo): every cell the segment crosses, in order.
+    // Unlike the bounding box this stays proportional to the wire's length.
+    private static void forEachCellOnSegment(double x1, double y1, double x2, double y2, CellVisitor visitor) {
+        double dx = x2 - x1, dy = y2 - y1;
+        int cx = cellOf(x1), cy = cellOf(y1);
+        int endX = cellOf(x2), endY = cellOf(y2);
+        int stepX = Integer.signum(endX - cx), stepY = Integer.signum(endY - cy);
+
+        double deltaX = stepX == 0 ? Double.POSITIVE_INFINITY : CELL_SIZE / Math.abs(dx);
+        double deltaY = stepY == 0 ? Double.POSITIVE_INFINITY : CELL_SIZE / Math.abs(dy);
+        double nextX = stepX == 0 ? Double.POSITIVE_INFINITY
+            : (stepX > 0 ? (cx + 1) * CELL_SIZE - x1 : x1 - cx * CELL_SIZE) / Math.abs(dx);
+        double nextY = stepY == 0 ? Double.POSITIVE_INFINITY
+            : (stepY > 0 ? (cy + 1) * CELL_SIZE - y1 : y1 - cy * CELL_SIZE) / Math.abs(dy);
+
+        visitor.visit(cx, cy);
+        while (cx != endX || cy != endY) {
+            // Rounding can make one axis arrive early; finish along the other one
+            if (cy == endY || (cx != endX && nextX < nextY)) {
+                cx += stepX;
+                nextX += deltaX;
+            } else {
+                cy += stepY;
+                nextY += deltaY;
+            }
+            visitor.visit(cx, cy);
+        }
+    }
+
+    private static <T> List<T> cell(Map<Long, List<T>> grid, int cx, int cy) {
+        return grid.computeIfAbsent(key(cx, cy), k -> new ArrayList<>());
+    }
+
+    private static int cellOf(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+}
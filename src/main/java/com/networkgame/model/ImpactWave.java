@@ -1,40 +1,79 @@
 package com.networkgame.model;
 
+import com.networkgame.util.RenderCache;
 import java.awt.*;
 import java.awt.geom.Point2D;
 
 public class ImpactWave {
-    private Point2D center;
+    private double centerX, centerY;
     private double radius;
+    // Radius before the last update; the ring swept the band between the two
+    private double previousRadius;
     private double maxRadius;
     private double duration;
     private double elapsedTime;
-    private static final double MAX_RADIUS = 100.0;
+    static final double MAX_RADIUS = 100.0;
+    private static final RenderCache.AlphaRamp FADE = RenderCache.alphaRamp(Color.RED);
 
     public ImpactWave(Point2D center, double duration) {
-        this.center = center;
-        this.radius = 0;
+        this(center.getX(), center.getY(), duration);
+    }
+
+    public ImpactWave(double centerX, double centerY, double duration) {
         this.maxRadius = MAX_RADIUS;
+        reset(centerX, centerY, duration);
+    }
+
+    // Reinitializes a pooled wave in place
+    void reset(double centerX, double centerY, double duration) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.radius = 0;
+        this.previousRadius = 0;
         this.duration = duration;
         this.elapsedTime = 0;
     }
 
+    double getDuration() {
+        return duration;
+    }
+
+    double getElapsedTime() {
+        return elapsedTime;
+    }
+
+    // Puts a saved wave back mid-flight, including the band its last update swept
+    void restore(double elapsedTime, double previousRadius) {
+        this.elapsedTime = elapsedTime;
+        this.radius = (elapsedTime / duration) * maxRadius;
+        this.previousRadius = previousRadius;
+    }
+
     public void update(double deltaTime) {
+        previousRadius = radius;
         elapsedTime += deltaTime;
         radius = (elapsedTime / duration) * maxRadius;
     }
 
     public void draw(Graphics2D g2d) {
+        draw(g2d, 1, 0, 0);
+    }
+
+    // Drawn straight in screen coordinates, for a view that scales by zoom and then
+    // translates by (offsetX, offsetY); Java2D allocates for every oval drawn through a scale
+    public void draw(Graphics2D g2d, double zoom, double offsetX, double offsetY) {
         double alpha = 1.0 - (elapsedTime / duration);
         if (alpha <= 0) return;
 
-        g2d.setColor(new Color(1.0f, 0.0f, 0.0f, (float)alpha));
-        g2d.setStroke(new BasicStroke(2.0f));
+        g2d.setColor(FADE.get(alpha));
+        // Whole pixels, so zooming does not fill the stroke cache with widths
+        g2d.setStroke(RenderCache.stroke(Math.max(1, Math.round(2 * zoom))));
+        double screenRadius = radius * zoom;
         g2d.drawOval(
-            (int)(center.getX() - radius),
-            (int)(center.getY() - radius),
-            (int)(radius * 2),
-            (int)(radius * 2)
+            (int)(centerX * zoom + offsetX - screenRadius),
+            (int)(centerY * zoom + offsetY - screenRadius),
+            (int)(screenRadius * 2),
+            (int)(screenRadius * 2)
         );
     }
 
@@ -43,10 +82,22 @@ public class ImpactWave {
     }
 
     public Point2D getCenter() {
-        return center;
+        return new Point2D.Double(centerX, centerY);
+    }
+
+    public double getCenterX() {
+        return centerX;
+    }
+
+    public double getCenterY() {
+        return centerY;
     }
 
     public double getRadius() {
         return radius;
     }
-} 
\ No newline at end of file
+
+    double getPreviousRadius() {
+        return previousRadius;
+    }
+}
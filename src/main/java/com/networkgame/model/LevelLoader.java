@@ -0,0 +1,228 @@
+package com.networkgame.model;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads level files ("levelN.txt") line by line and caches the parsed result.
+ * Files in the directory named by the networkgame.levels.dir system property
+ * take precedence over the ones bundled under /levels/, and are re-read when
+ * their modification time changes, so levels can be swapped without a rebuild.
+ *
+ * Format, one statement per line, '#' starts a comment:
+ *   wire <length>
+ *   system <x> <y> [reference]      starts a system
+ *   in <type>...  /  out <type>...  ports of the current system
+ *   packets <type> <count> [system] system is 1-based, omitted for none
+ */
+public class LevelLoader {
+    public static final String LEVELS_DIRECTORY_PROPERTY = "networkgame.levels.dir";
+    private static final String RESOURCE_DIRECTORY = "/levels/";
+    private static final LevelLoader DEFAULT = new LevelLoader(directoryFromProperty());
+
+    private final Path levelsDirectory;
+    private final Map<Integer, CachedLevel> cache = new ConcurrentHashMap<>();
+
+    public LevelLoader(Path levelsDirectory) {
+        this.levelsDirectory = levelsDirectory;
+    }
+
+    public static LevelLoader getDefault() {
+        return DEFAULT;
+    }
+
+    public LevelConfig load(int levelNumber) {
+        Path file = diskFile(levelNumber);
+        long modified = lastModified(file);
+        CachedLevel cached = cache.get(levelNumber);
+        if (cached != null && cached.modified == modified) {
+            return cached.level;
+        }
+
+        LevelConfig level;
+        try (BufferedReader reader = open(levelNumber, file)) {
+            if (reader == null) {
+                throw new IllegalArgumentException("Unknown level: " + levelNumber);
+            }
+            level = parse(levelNumber, reader, fileName(levelNumber));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading level " + levelNumber, e);
+        }
+        cache.put(levelNumber, new CachedLevel(level, modified));
+        return level;
+    }
+
+    public boolean exists(int levelNumber) {
+        if (levelNumber < 1) return false;
+        if (cache.containsKey(levelNumber)) return true;
+        Path file = diskFile(levelNumber);
+        return (file != null && Files.isRegularFile(file))
+            || LevelLoader.class.getResource(RESOURCE_DIRECTORY + fileName(levelNumber)) != null;
+    }
+
+    // Levels are numbered from 1 without gaps
+    public int getLevelCount() {
+        int count = 0;
+        while (exists(count + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    public void invalidate() {
+        cache.clear();
+    }
+
+    public static LevelConfig parse(int levelNumber, BufferedReader reader, String source) throws IOException {
+        LevelConfig level = new LevelConfig(levelNumber);
+        LevelConfig.SystemConfig system = null;
+        String[] tokens = new String[8];
+        String line;
+        int lineNumber = 0;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int count = tokenize(line, tokens);
+            while (count == -1) {
+                tokens = new String[tokens.length * 2];
+                count = tokenize(line, tokens);
+            }
+            if (count == 0) continue;
+
+            try {
+                switch (tokens[0]) {
+                    case "wire":
+                        expect(count, 2, 2);
+                        level.setInitialWireLength(Double.parseDouble(tokens[1]));
+                        break;
+                    case "system":
+                        expect(count, 3, 4);
+                        boolean reference = count == 4;
+                        if (reference && !"reference".equals(tokens[3])) {
+                            throw new IllegalArgumentException("expected 'reference', found '" + tokens[3] + "'");
+                        }
+                        system = new LevelConfig.SystemConfig(
+                            Double.parseDouble(tokens[1]), Double.parseDouble(tokens[2]), reference);
+                        level.addSystem(system);
+                        break;
+                    case "in":
+                    case "out":
+                        if (system == null) {
+                            throw new IllegalArgumentException("ports declared before any system");
+                        }
+                        for (int i = 1; i < count; i++) {
+                            PortType type = PortType.valueOf(tokens[i]);
+                            if (tokens[0].equals("in")) {
+                                system.addInputPort(type);
+                            } else {
+                                system.addOutputPort(type);
+                            }
+                        }
+                        break;
+                    case "packets":
+                        expect(count, 3, 4);
+                        int packetCount = Integer.parseInt(tokens[2]);
+                        if (packetCount < 0) {
+                            throw new IllegalArgumentException("negative packet count " + packetCount);
+                        }
+                        int systemId = count == 4 ? Integer.parseInt(tokens[3]) : 0;
+                        if (count == 4 && systemId < 1) {
+                            throw new IllegalArgumentException("systems are numbered from 1, found " + systemId);
+                        }
+                        level.addPacket(new LevelConfig.PacketConfig(
+                            PortType.valueOf(tokens[1]), packetCount, systemId));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown statement '" + tokens[0] + "'");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(source + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+
+        for (LevelConfig.PacketConfig packet : level.getPackets()) {
+            if (packet.getSystemId() > level.getSystems().size()) {
+                throw new IllegalArgumentException(source + ": packets refer to missing system " + packet.getSystemId());
+            }
+        }
+        return level;
+    }
+
+    // Splits on whitespace up to a '#'; returns -1 if the tokens array is too small
+    private static int tokenize(String line, String[] tokens) {
+        int count = 0;
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            char c = line.charAt(i);
+            if (c == '#') break;
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(line.charAt(i)) && line.charAt(i) != '#') {
+                i++;
+            }
+            if (count == tokens.length) return -1;
+            tokens[count++] = line.substring(start, i);
+        }
+        return count;
+    }
+
+    private static void expect(int count, int min, int max) {
+        if (count < min || count > max) {
+            throw new IllegalArgumentException("expected " + (min - 1)
+                + (max > min ? " to " + (max - 1) : "") + " arguments, found " + (count - 1));
+        }
+    }
+
+    private BufferedReader open(int levelNumber, Path file) throws IOException {
+        if (file != null && Files.isRegularFile(file)) {
+            return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        }
+        InputStream resource = LevelLoader.class.getResourceAsStream(RESOURCE_DIRECTORY + fileName(levelNumber));
+        if (resource == null) {
+            return null;
+        }
+        return new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8));
+    }
+
+    private Path diskFile(int levelNumber) {
+        return levelsDirectory != null ? levelsDirectory.resolve(fileName(levelNumber)) : null;
+    }
+
+    // Bundled levels never change, so they are cached under a fixed stamp
+    private static long lastModified(Path file) {
+        if (file == null) return -1;
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static String fileName(int levelNumber) {
+        return "level" + levelNumber + ".txt";
+    }
+
+    private static Path directoryFromProperty() {
+        String directory = System.getProperty(LEVELS_DIRECTORY_PROPERTY);
+        return directory != null ? Paths.get(directory) : null;
+    }
+
+    private static class CachedLevel {
+        private final LevelConfig level;
+        private final long modified;
+
+        CachedLevel(LevelConfig level, long modified) {
+            this.level = level;
+            this.modified = modified;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.networkgame.model;
 
+import com.networkgame.util.RenderCache;
 import java.awt.*;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Queue;
 import java.util.LinkedList;
@@ -17,6 +19,14 @@ public class NetworkSystem {
     private boolean isActive;
     private Color color;
     private boolean indicatorOn;
+    // Occupancy index, maintained by Port.setOccupied
+    private int occupiedInputs;
+    private int occupiedOutputs;
+    private final BitSet freeOutputs = new BitSet();
+    private final BitSet[] freeOutputsByType = new BitSet[PortType.values().length];
+    private GameState owner;
+    // Position in the owning state's system list, used to index its routing tables
+    private int index;
 
     public NetworkSystem(double x, double y, double width, double height, boolean isReferenceSystem) {
         this.bounds = new Rectangle2D.Double(x, y, width, height);
@@ -27,6 +37,9 @@ public class NetworkSystem {
         this.isActive = false;
         this.color = new Color(200, 200, 200);
         this.indicatorOn = false;
+        for (int i = 0; i < freeOutputsByType.length; i++) {
+            freeOutputsByType[i] = new BitSet();
+        }
     }
 
     public void addInputPort(PortType type) {
@@ -37,7 +50,9 @@ public class NetworkSystem {
             true
         );
         port.setParentSystem(this);
+        port.setIndex(inputPorts.size());
         inputPorts.add(port);
+        portAdded(port);
     }
 
     public void addOutputPort(PortType type) {
@@ -48,31 +63,37 @@ public class NetworkSystem {
             false
         );
         port.setParentSystem(this);
+        port.setIndex(outputPorts.size());
         outputPorts.add(port);
+        freeOutputs.set(port.getIndex());
+        freeOutputsByType[port.getType().ordinal()].set(port.getIndex());
+        portAdded(port);
     }
 
-    public void update() {
-        // Check if all ports are connected
-        boolean allInputsConnected = true;
-        boolean allOutputsConnected = true;
-
-        for (Port port : inputPorts) {
-            if (!port.isOccupied()) {
-                allInputsConnected = false;
-                break;
-            }
+    void portOccupancyChanged(Port port) {
+        topologyChanged();
+        int delta = port.isOccupied() ? 1 : -1;
+        if (port.isInput()) {
+            occupiedInputs += delta;
+            return;
         }
+        occupiedOutputs += delta;
+        boolean free = !port.isOccupied();
+        freeOutputs.set(port.getIndex(), free);
+        freeOutputsByType[port.getType().ordinal()].set(port.getIndex(), free);
+    }
 
-        for (Port port : outputPorts) {
-            if (!port.isOccupied()) {
-                allOutputsConnected = false;
-                break;
-            }
-        }
+    public void update() {
+        // Check if all ports are connected
+        boolean allInputsConnected = occupiedInputs == inputPorts.size();
+        boolean allOutputsConnected = occupiedOutputs == outputPorts.size();
 
         // Update system active state
         isActive = allInputsConnected && allOutputsConnected;
-        indicatorOn = isActive;
+        if (indicatorOn != isActive) {
+            indicatorOn = isActive;
+            topologyChanged();
+        }
 
         // Process stored packets if system is active
         if (isActive && !storedPackets.isEmpty()) {
@@ -80,32 +101,86 @@ public class NetworkSystem {
             Port outputPort = findCompatibleOutputPort(packet);
             if (outputPort != null && !outputPort.isOccupied()) {
                 storedPackets.poll();
+                storageChanged();
                 outputPort.setOccupied(true);
                 packet.setTargetPort(outputPort);
             }
         }
     }
 
+    // Whether update() would leave the system as it is. A connected system has no
+    // free output to release a stored packet through.
+    boolean isSettled() {
+        boolean connected = occupiedInputs == inputPorts.size() && occupiedOutputs == outputPorts.size();
+        return isActive == connected && indicatorOn == connected;
+    }
+
+    void restoreStatus(boolean active, boolean indicatorOn) {
+        this.isActive = active;
+        if (this.indicatorOn != indicatorOn) {
+            this.indicatorOn = indicatorOn;
+            topologyChanged();
+        }
+    }
+
+    void setOwner(GameState owner) {
+        this.owner = owner;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    private void portAdded(Port port) {
+        if (owner != null) {
+            owner.portAdded(port);
+        }
+    }
+
+    private void storageChanged() {
+        if (owner != null) {
+            owner.hudChanged();
+        }
+    }
+
+    // Lets the owning state know its static drawing is out of date
+    private void topologyChanged() {
+        if (owner != null) {
+            owner.topologyChanged();
+        }
+    }
+
     public void draw(Graphics2D g2d) {
+        draw(g2d, true);
+    }
+
+    // Zoomed far out the port glyphs are too small to make out and can be left off
+    public void draw(Graphics2D g2d, boolean drawPorts) {
         // Draw system body
-        g2d.setColor(isReferenceSystem ? new Color(200, 200, 255) : new Color(240, 240, 240));
+        g2d.setColor(isReferenceSystem ? RenderCache.color(200, 200, 255, 255) : RenderCache.color(240, 240, 240, 255));
         g2d.fill(bounds);
         g2d.setColor(Color.BLACK);
         g2d.draw(bounds);
 
         // Draw ports
-        for (Port port : inputPorts) {
-            port.draw(g2d);
-        }
-        for (Port port : outputPorts) {
-            port.draw(g2d);
+        if (drawPorts) {
+            for (Port port : inputPorts) {
+                port.draw(g2d);
+            }
+            for (Port port : outputPorts) {
+                port.draw(g2d);
+            }
         }
 
         // Draw indicator
         if (indicatorOn) {
             g2d.setColor(Color.GREEN);
             g2d.fillOval(
-                (int)bounds.getX() + bounds.width - 20,
+                (int)(bounds.getX() + bounds.getWidth()) - 20,
                 (int)bounds.getY() - 20,
                 20, 20
             );
@@ -123,50 +198,27 @@ public class NetworkSystem {
     public void storePacket(Packet packet) {
         if (canStorePacket()) {
             storedPackets.add(packet);
+            storageChanged();
         }
     }
 
     public Port findAvailableOutputPort() {
-        for (Port port : outputPorts) {
-            if (!port.isOccupied()) {
-                return port;
-            }
-        }
-        return null;
+        int index = freeOutputs.nextSetBit(0);
+        return index >= 0 ? outputPorts.get(index) : null;
     }
 
     public boolean hasAvailableOutputPort() {
-        for (Port port : outputPorts) {
-            if (!port.isOccupied()) {
-                return true;
-            }
-        }
-        return false;
+        return occupiedOutputs < outputPorts.size();
     }
 
     private Port findCompatibleOutputPort(Packet packet) {
         // First try to find a compatible unoccupied port
-        for (Port port : outputPorts) {
-            if (!port.isOccupied() && isCompatible(packet, port)) {
-                return port;
-            }
+        int index = freeOutputsByType[packet.getType().ordinal()].nextSetBit(0);
+        if (index >= 0) {
+            return outputPorts.get(index);
         }
         // If no compatible port is available, find any unoccupied port
-        for (Port port : outputPorts) {
-            if (!port.isOccupied()) {
-                return port;
-            }
-        }
-        return null;
-    }
-
-    private boolean isCompatible(Packet packet, Port port) {
-        if (packet instanceof SquarePacket) {
-            return port.getType() == PortType.SQUARE;
-        } else if (packet instanceof TrianglePacket) {
-            return port.getType() == PortType.TRIANGLE;
-        }
-        return false;
+        return findAvailableOutputPort();
     }
 
     // Getters and setters
@@ -1,10 +1,16 @@
 package com.networkgame.model;
 
+import com.networkgame.util.RenderCache;
 import java.awt.*;
 import java.awt.geom.Point2D;
 
+// While a packet is in a PacketStore its live state is kept in the store's
+// columns and this object acts as a view; the fields below hold the state
+// only while the packet is detached (e.g. queued inside a system). Motion and
+// impacts are implemented once, over the store's columns.
 public abstract class Packet {
     protected double x, y;
+    protected double previousX, previousY;
     protected double targetX, targetY;
     protected double speed;
     protected double maxSpeed;
@@ -12,6 +18,10 @@ public abstract class Packet {
     protected double deceleration;
     protected double noise;
     protected Port targetPort;
+    // Wire being followed, if any; see PacketStore for the meaning of the fields
+    protected Connection wire;
+    protected double travelled;
+    protected int segment;
     protected boolean isMoving;
     protected double size;
     protected Color color;
@@ -19,10 +29,14 @@ public abstract class Packet {
     protected static final double NOISE_THRESHOLD = 1.0;
     protected static final double IMPACT_RADIUS = 50.0;
     protected static final double IMPACT_FORCE = 0.5;
+    PacketStore store;
+    int handle = -1;
 
     public Packet(double x, double y, Port targetPort) {
         this.x = x;
         this.y = y;
+        this.previousX = x;
+        this.previousY = y;
         this.targetPort = targetPort;
         if (targetPort != null) {
             this.targetX = targetPort.getX();
@@ -36,86 +50,87 @@ public abstract class Packet {
         this.deceleration = 0.05;
     }
 
+    // The physics lives only in PacketStore; a detached packet is stepped there too
     public void update(double deltaTime) {
-        if (!isMoving) return;
-
-        // Calculate direction to target
-        double dx = targetX - x;
-        double dy = targetY - y;
-        double distance = Math.sqrt(dx * dx + dy * dy);
-
-        if (distance < 5) {
-            isMoving = false;
-            return;
-        }
-
-        // Normalize direction
-        dx /= distance;
-        dy /= distance;
-
-        // Update speed with acceleration/deceleration
-        if (distance > 100) {
-            // Accelerate
-            speed = Math.min(speed + acceleration * deltaTime, maxSpeed);
+        if (store != null) {
+            store.update(slot(), deltaTime);
         } else {
-            // Decelerate
-            speed = Math.max(speed - deceleration * deltaTime, 0);
+            PacketStore.updateDetached(this, deltaTime);
         }
-
-        // Apply movement
-        x += dx * speed * deltaTime;
-        y += dy * speed * deltaTime;
     }
 
     public void applyImpact(Point2D impactPoint, double force) {
-        double dx = x - impactPoint.getX();
-        double dy = y - impactPoint.getY();
-        double distance = Math.sqrt(dx * dx + dy * dy);
-
-        if (distance < IMPACT_RADIUS) {
-            // Calculate impact force based on distance
-            double impactForce = force * (1 - distance / IMPACT_RADIUS);
-            
-            // Add noise based on impact force
-            noise += impactForce;
-            
-            // Apply deflection
-            double deflectionAngle = Math.atan2(dy, dx);
-            x += Math.cos(deflectionAngle) * impactForce * 10;
-            y += Math.sin(deflectionAngle) * impactForce * 10;
+        applyImpact(impactPoint.getX(), impactPoint.getY(), force);
+    }
+
+    public void applyImpact(double impactX, double impactY, double force) {
+        if (store != null) {
+            store.applyImpact(slot(), impactX, impactY, force);
+        } else {
+            PacketStore.applyImpactDetached(this, impactX, impactY, force);
         }
     }
 
     public void resetNoise() {
-        noise = 0;
+        if (store != null) {
+            store.noise[slot()] = 0;
+        } else {
+            noise = 0;
+        }
     }
 
     public boolean isDestroyed() {
-        return noise > NOISE_THRESHOLD;
+        return getNoise() > NOISE_THRESHOLD;
+    }
+
+    public double getNoise() {
+        return store != null ? store.noise[slot()] : noise;
     }
 
     public boolean isMoving() {
-        return isMoving;
+        return store != null ? store.moving[slot()] : isMoving;
     }
 
     public Port getTargetPort() {
-        return targetPort;
+        return store != null ? store.targetPort[slot()] : targetPort;
     }
 
+    // Steers straight for the port, leaving any wire the packet was following
     public void setTargetPort(Port targetPort) {
+        if (store != null) {
+            int slot = slot();
+            store.targetPort[slot] = targetPort;
+            store.wire[slot] = null;
+            if (targetPort != null) {
+                store.targetX[slot] = targetPort.getX();
+                store.targetY[slot] = targetPort.getY();
+            }
+            return;
+        }
+
         this.targetPort = targetPort;
+        this.wire = null;
         if (targetPort != null) {
             this.targetX = targetPort.getX();
             this.targetY = targetPort.getY();
         }
     }
 
+    public Connection getWire() {
+        return store != null ? store.wire[slot()] : wire;
+    }
+
+    // Distance covered along the current wire; with getLength this gives what is left
+    public double getDistanceAlongWire() {
+        return store != null ? store.travelled[slot()] : travelled;
+    }
+
     public double getX() {
-        return x;
+        return store != null ? store.x[slot()] : x;
     }
 
     public double getY() {
-        return y;
+        return store != null ? store.y[slot()] : y;
     }
 
     public double getSize() {
@@ -126,10 +141,38 @@ public abstract class Packet {
         return 1; // Base reward
     }
 
+    public abstract PortType getType();
+
+    // Position blended between the last two simulation steps, alpha in [0, 1]
+    public double getInterpolatedX(double alpha) {
+        if (store != null) {
+            int slot = slot();
+            return store.previousX[slot] + (store.x[slot] - store.previousX[slot]) * alpha;
+        }
+        return previousX + (x - previousX) * alpha;
+    }
+
+    public double getInterpolatedY(double alpha) {
+        if (store != null) {
+            int slot = slot();
+            return store.previousY[slot] + (store.y[slot] - store.previousY[slot]) * alpha;
+        }
+        return previousY + (y - previousY) * alpha;
+    }
+
     public void draw(Graphics2D g2d) {
+        draw(g2d, 1.0);
+    }
+
+    public void draw(Graphics2D g2d, double alpha) {
         g2d.setColor(color);
-        g2d.fill(getShape());
+        RenderCache.fill(g2d, getUnitShape(), getInterpolatedX(alpha), getInterpolatedY(alpha), getSize());
     }
 
-    protected abstract Shape getShape();
-} 
\ No newline at end of file
+    // Outline centred on the origin with a half-width of one; drawing scales it by size
+    protected abstract Shape getUnitShape();
+
+    private int slot() {
+        return store.slotOfHandle(handle);
+    }
+}
@@ -0,0 +1,265 @@
+package com.networkgame.model;
+
+import com.networkgame.util.RenderCache;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Draws all active packets of a GameState straight from the packet store,
+ * one type at a time so the color changes once per type. Small counts are
+ * filled one antialiased shape each. Larger counts are gathered into a single
+ * path per type and filled with one call. Above the low-detail threshold
+ * packets are plotted as dots into an int[] raster blitted with one drawImage.
+ * Drawn through a view transform (scale and translation only), packets off
+ * screen are skipped and only those on screen count towards the thresholds.
+ * Zoomed out below the heatmap zoom they are counted into coarse screen cells
+ * and shown as a density heatmap instead.
+ */
+public class PacketRenderer {
+    public static final int DEFAULT_LOW_DETAIL_THRESHOLD = 5000;
+    // Above this many packets they are batched into one path per type
+    private static final int BATCH_THRESHOLD = 500;
+    // Side of a packet's dot in low-detail mode, in pixels
+    private static final int DOT_SIZE = 2;
+    public static final double HEATMAP_ZOOM = 0.35;
+    // Side of a heatmap cell in pixels, and the count at which a cell reaches full heat
+    private static final int HEAT_CELL = 8;
+    private static final int HEAT_SATURATION = 32;
+    private static final int[] HEAT_COLORS = heatColors();
+    private static final AffineTransform IDENTITY = new AffineTransform();
+
+    private static final Color[] TYPE_COLORS = new Color[PortType.values().length];
+    static {
+        TYPE_COLORS[PortType.SQUARE.ordinal()] = SquarePacket.COLOR;
+        TYPE_COLORS[PortType.TRIANGLE.ordinal()] = TrianglePacket.COLOR;
+    }
+    private static final double TRIANGLE_HALF_HEIGHT = Math.sqrt(3) / 2;
+
+    private final int lowDetailThreshold;
+    // Reset rather than reallocated each frame, so their coordinate arrays are reused
+    private final Path2D.Float[] paths = new Path2D.Float[PortType.values().length];
+    private final boolean[] pathEmpty = new boolean[PortType.values().length];
+    private final int[] typeColors = new int[PortType.values().length];
+    private BufferedImage raster;
+    private int[] pixels;
+    // Pixels set last frame; only these are cleared before the next one
+    private int[] dirty = new int[1024];
+    private int dirtyCount;
+    private BufferedImage heatmap;
+    private int[] heatPixels;
+    private int[] heatCounts;
+
+    public PacketRenderer() {
+        this(DEFAULT_LOW_DETAIL_THRESHOLD);
+    }
+
+    public PacketRenderer(int lowDetailThreshold) {
+        this.lowDetailThreshold = lowDetailThreshold;
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = new Path2D.Float(Path2D.WIND_NON_ZERO, 1024);
+            typeColors[i] = TYPE_COLORS[i].getRGB();
+        }
+    }
+
+    public void draw(Graphics2D g2d, GameState gameState, double alpha, int width, int height) {
+        draw(g2d, gameState, alpha, width, height, IDENTITY);
+    }
+
+    public void draw(Graphics2D g2d, GameState gameState, double alpha, int width, int height, AffineTransform view) {
+        PacketStore store = gameState.getPacketStore();
+        if (view.getScaleX() < HEATMAP_ZOOM) {
+            drawHeatmap(g2d, store, alpha, width, height, view);
+            return;
+        }
+
+        // The visible part of the model; packets wholly outside it are skipped,
+        // and the drawing mode is chosen by how many are left
+        double scale = view.getScaleX();
+        double minX = -view.getTranslateX() / scale;
+        double minY = -view.getTranslateY() / scale;
+        double maxX = minX + width / scale;
+        double maxY = minY + height / scale;
+        int visible = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (isVisible(store, i, alpha, minX, minY, maxX, maxY)) {
+                visible++;
+            }
+        }
+
+        if (visible > lowDetailThreshold) {
+            drawRaster(g2d, store, alpha, width, height, view);
+        } else if (visible > BATCH_THRESHOLD) {
+            drawBatched(g2d, store, alpha, view, minX, minY, maxX, maxY);
+        } else {
+            // Reversed by hand afterwards: getTransform would hand back a fresh copy every frame
+            g2d.translate(view.getTranslateX(), view.getTranslateY());
+            g2d.scale(scale, scale);
+            drawEach(g2d, store, alpha, minX, minY, maxX, maxY);
+            g2d.scale(1 / scale, 1 / scale);
+            g2d.translate(-view.getTranslateX(), -view.getTranslateY());
+        }
+    }
+
+    private static boolean isVisible(PacketStore store, int i, double alpha,
+                                     double minX, double minY, double maxX, double maxY) {
+        double x = store.previousX[i] + (store.x[i] - store.previousX[i]) * alpha;
+        double y = store.previousY[i] + (store.y[i] - store.previousY[i]) * alpha;
+        double size = store.size[i];
+        return x + size >= minX && x - size <= maxX && y + size >= minY && y - size <= maxY;
+    }
+
+    private void drawEach(Graphics2D g2d, PacketStore store, double alpha,
+                          double minX, double minY, double maxX, double maxY) {
+        for (int type = 0; type < TYPE_COLORS.length; type++) {
+            Shape shape = type == PortType.SQUARE.ordinal() ? RenderCache.UNIT_SQUARE : RenderCache.UNIT_TRIANGLE;
+            g2d.setColor(TYPE_COLORS[type]);
+            for (int i = 0; i < store.size(); i++) {
+                if (store.type[i] != type) continue;
+                if (!isVisible(store, i, alpha, minX, minY, maxX, maxY)) continue;
+                double x = store.previousX[i] + (store.x[i] - store.previousX[i]) * alpha;
+                double y = store.previousY[i] + (store.y[i] - store.previousY[i]) * alpha;
+                RenderCache.fill(g2d, shape, x, y, store.size[i]);
+            }
+        }
+    }
+
+    // The paths are built in screen coordinates as floats: Java2D fills a Path2D.Float under
+    // an integer translation in place, where anything else is first copied into a new one
+    private void drawBatched(Graphics2D g2d, PacketStore store, double alpha, AffineTransform view,
+                             double minX, double minY, double maxX, double maxY) {
+        for (int type = 0; type < paths.length; type++) {
+            paths[type].reset();
+            pathEmpty[type] = true;
+        }
+
+        double scale = view.getScaleX();
+        double offsetX = view.getTranslateX();
+        double offsetY = view.getTranslateY();
+        for (int i = 0; i < store.size(); i++) {
+            if (!isVisible(store, i, alpha, minX, minY, maxX, maxY)) continue;
+            double x = (store.previousX[i] + (store.x[i] - store.previousX[i]) * alpha) * scale + offsetX;
+            double y = (store.previousY[i] + (store.y[i] - store.previousY[i]) * alpha) * scale + offsetY;
+            double size = store.size[i] * scale;
+            Path2D.Float path = paths[store.type[i]];
+            pathEmpty[store.type[i]] = false;
+            if (store.type[i] == PortType.SQUARE.ordinal()) {
+                path.moveTo(x - size, y - size);
+                path.lineTo(x + size, y - size);
+                path.lineTo(x + size, y + size);
+                path.lineTo(x - size, y + size);
+            } else {
+                double halfHeight = size * TRIANGLE_HALF_HEIGHT;
+                path.moveTo(x, y - halfHeight);
+                path.lineTo(x - size, y + halfHeight);
+                path.lineTo(x + size, y + halfHeight);
+            }
+            path.closePath();
+        }
+
+        // An antialiased fill walks coverage over the whole path's bounds, which for packets
+        // spread across the screen costs more than filling them one by one; plain scan conversion does not
+        Object antialiasing = g2d.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        for (int type = 0; type < paths.length; type++) {
+            if (pathEmpty[type]) continue;
+            g2d.setColor(TYPE_COLORS[type]);
+            g2d.fill(paths[type]);
+        }
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
+    }
+
+    private void drawRaster(Graphics2D g2d, PacketStore store, double alpha, int width, int height,
+                            AffineTransform view) {
+        if (width <= 0 || height <= 0) return;
+        if (raster == null || raster.getWidth() != width || raster.getHeight() != height) {
+            raster = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            pixels = ((DataBufferInt) raster.getRaster().getDataBuffer()).getData();
+            dirtyCount = 0;
+        }
+
+        for (int i = 0; i < dirtyCount; i++) {
+            pixels[dirty[i]] = 0;
+        }
+        dirtyCount = 0;
+
+        double scale = view.getScaleX();
+        double offsetX = view.getTranslateX();
+        double offsetY = view.getTranslateY();
+        int maxX = width - DOT_SIZE;
+        int maxY = height - DOT_SIZE;
+        for (int i = 0; i < store.size(); i++) {
+            double modelX = store.previousX[i] + (store.x[i] - store.previousX[i]) * alpha;
+            double modelY = store.previousY[i] + (store.y[i] - store.previousY[i]) * alpha;
+            int x = (int) (modelX * scale + offsetX) - DOT_SIZE / 2;
+            int y = (int) (modelY * scale + offsetY) - DOT_SIZE / 2;
+            if (x < 0 || y < 0 || x > maxX || y > maxY) continue;
+
+            int color = typeColors[store.type[i]];
+            if (dirty.length < dirtyCount + DOT_SIZE * DOT_SIZE) {
+                dirty = Arrays.copyOf(dirty, dirty.length * 2);
+            }
+            for (int dy = 0; dy < DOT_SIZE; dy++) {
+                int row = (y + dy) * width + x;
+                for (int dx = 0; dx < DOT_SIZE; dx++) {
+                    pixels[row + dx] = color;
+                    dirty[dirtyCount++] = row + dx;
+                }
+            }
+        }
+
+        g2d.drawImage(raster, 0, 0, null);
+    }
+
+    private void drawHeatmap(Graphics2D g2d, PacketStore store, double alpha, int width, int height,
+                             AffineTransform view) {
+        if (width <= 0 || height <= 0) return;
+        int columns = (width + HEAT_CELL - 1) / HEAT_CELL;
+        int rows = (height + HEAT_CELL - 1) / HEAT_CELL;
+        if (heatmap == null || heatmap.getWidth() != columns || heatmap.getHeight() != rows) {
+            heatmap = new BufferedImage(columns, rows, BufferedImage.TYPE_INT_ARGB);
+            heatPixels = ((DataBufferInt) heatmap.getRaster().getDataBuffer()).getData();
+            heatCounts = new int[columns * rows];
+        } else {
+            Arrays.fill(heatCounts, 0);
+        }
+
+        double scale = view.getScaleX() / HEAT_CELL;
+        double offsetX = view.getTranslateX() / HEAT_CELL;
+        double offsetY = view.getTranslateY() / HEAT_CELL;
+        for (int i = 0; i < store.size(); i++) {
+            double modelX = store.previousX[i] + (store.x[i] - store.previousX[i]) * alpha;
+            double modelY = store.previousY[i] + (store.y[i] - store.previousY[i]) * alpha;
+            double column = modelX * scale + offsetX;
+            double row = modelY * scale + offsetY;
+            if (column < 0 || row < 0 || column >= columns || row >= rows) continue;
+            heatCounts[(int) row * columns + (int) column]++;
+        }
+        for (int i = 0; i < heatCounts.length; i++) {
+            heatPixels[i] = HEAT_COLORS[Math.min(heatCounts[i], HEAT_SATURATION)];
+        }
+
+        // Stretched to the panel with nearest-neighbour scaling; smoothing it costs several times the rest
+        Object interpolation = g2d.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g2d.drawImage(heatmap, 0, 0, columns * HEAT_CELL, rows * HEAT_CELL, null);
+        if (interpolation != null) {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        }
+    }
+
+    // Transparent for empty cells, then from a faint orange to an opaque red
+    private static int[] heatColors() {
+        int[] colors = new int[HEAT_SATURATION + 1];
+        for (int count = 1; count <= HEAT_SATURATION; count++) {
+            double heat = Math.sqrt((double) count / HEAT_SATURATION);
+            int alpha = (int) (80 + 175 * heat);
+            int green = (int) (170 * (1 - heat));
+            colors[count] = alpha << 24 | 255 << 16 | green << 8;
+        }
+        return colors;
+    }
+}
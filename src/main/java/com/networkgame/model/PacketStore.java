@@ -0,0 +1,468 @@
+package com.networkgame.model;
+
+import com.networkgame.util.RepeatedAddition;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Packed column storage for the packets in flight.
+ * Live packets occupy slots 0..size-1 of every column; removal swaps the last
+ * slot into the hole, or for a stable bulk removal slides the survivors down
+ * in one pass. Each Packet keeps a stable handle that is mapped to its
+ * current slot, and freed handles are reused from a free list.
+ */
+public class PacketStore {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int TRIANGLE = PortType.TRIANGLE.ordinal();
+    // One-slot store per thread that detached packets are stepped in
+    private static final ThreadLocal<PacketStore> SCRATCH = ThreadLocal.withInitial(PacketStore::new);
+
+    // Columns, indexed by slot
+    double[] x, y;
+    double[] previousX, previousY;
+    double[] targetX, targetY;
+    double[] speed, maxSpeed, acceleration, deceleration;
+    double[] noise;
+    double[] size;
+    int[] type;
+    boolean[] moving;
+    Port[] targetPort;
+    // Wire being followed, distance travelled along it and the segment that distance falls in
+    Connection[] wire;
+    double[] travelled;
+    int[] segment;
+    Packet[] views;
+    private int[] handleOfSlot;
+    private int count;
+
+    // Handle table: handle -> slot, with a stack of freed handles
+    private int[] slotOfHandle;
+    private int[] freeHandles;
+    private int freeCount;
+    private int handleCount;
+
+    private final List<Packet> listView = new AbstractList<Packet>() {
+        @Override
+        public Packet get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            }
+            return views[index];
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    };
+
+    public PacketStore() {
+        allocate(INITIAL_CAPACITY);
+        slotOfHandle = new int[INITIAL_CAPACITY];
+        freeHandles = new int[INITIAL_CAPACITY];
+    }
+
+    public void add(Packet packet) {
+        if (packet.store != null) {
+            throw new IllegalStateException("Packet is already stored");
+        }
+        if (count == x.length) {
+            allocate(x.length * 2);
+        }
+
+        int slot = count++;
+        x[slot] = packet.x;
+        y[slot] = packet.y;
+        previousX[slot] = packet.previousX;
+        previousY[slot] = packet.previousY;
+        targetX[slot] = packet.targetX;
+        targetY[slot] = packet.targetY;
+        speed[slot] = packet.speed;
+        maxSpeed[slot] = packet.maxSpeed;
+        acceleration[slot] = packet.acceleration;
+        deceleration[slot] = packet.deceleration;
+        noise[slot] = packet.noise;
+        size[slot] = packet.size;
+        type[slot] = packet.getType().ordinal();
+        moving[slot] = packet.isMoving;
+        targetPort[slot] = packet.targetPort;
+        wire[slot] = packet.wire;
+        travelled[slot] = packet.travelled;
+        segment[slot] = packet.segment;
+        views[slot] = packet;
+
+        int handle = acquireHandle();
+        slotOfHandle[handle] = slot;
+        handleOfSlot[slot] = handle;
+        packet.store = this;
+        packet.handle = handle;
+    }
+
+    // Copies the slot back into its Packet, then fills the hole with the last slot
+    public void removeAt(int slot) {
+        detach(slot);
+        int last = --count;
+        if (slot != last) {
+            moveSlot(last, slot);
+        }
+        targetPort[last] = null;
+        wire[last] = null;
+        views[last] = null;
+    }
+
+    // Removes every slot flagged in remove[0..size-1] in one pass. Stable keeps the
+    // survivors in slot order by sliding them down; otherwise each hole is filled
+    // from the end, exactly as repeated removeAt calls from the back would.
+    void removeAll(boolean[] remove, boolean stable) {
+        if (stable) {
+            int kept = 0;
+            for (int slot = 0; slot < count; slot++) {
+                if (remove[slot]) {
+                    detach(slot);
+                } else {
+                    if (slot != kept) {
+                        moveSlot(slot, kept);
+                    }
+                    kept++;
+                }
+            }
+            Arrays.fill(targetPort, kept, count, null);
+            Arrays.fill(wire, kept, count, null);
+            Arrays.fill(views, kept, count, null);
+            count = kept;
+        } else {
+            for (int slot = count - 1; slot >= 0; slot--) {
+                if (remove[slot]) {
+                    removeAt(slot);
+                }
+            }
+        }
+    }
+
+    private void detach(int slot) {
+        Packet packet = views[slot];
+        packet.x = x[slot];
+        packet.y = y[slot];
+        packet.previousX = previousX[slot];
+        packet.previousY = previousY[slot];
+        packet.targetX = targetX[slot];
+        packet.targetY = targetY[slot];
+        packet.speed = speed[slot];
+        packet.maxSpeed = maxSpeed[slot];
+        packet.acceleration = acceleration[slot];
+        packet.deceleration = deceleration[slot];
+        packet.noise = noise[slot];
+        packet.size = size[slot];
+        packet.isMoving = moving[slot];
+        packet.targetPort = targetPort[slot];
+        packet.wire = wire[slot];
+        packet.travelled = travelled[slot];
+        packet.segment = segment[slot];
+        packet.store = null;
+        releaseHandle(handleOfSlot[slot]);
+        packet.handle = -1;
+    }
+
+    public void clear() {
+        while (count > 0) {
+            removeAt(count - 1);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public Packet get(int slot) {
+        return views[slot];
+    }
+
+    public int slotOf(Packet packet) {
+        return packet.store == this ? slotOfHandle[packet.handle] : -1;
+    }
+
+    // Read-only list over the live packets, in slot order
+    public List<Packet> asList() {
+        return listView;
+    }
+
+    public void updateAll(double deltaTime) {
+        for (int i = 0; i < count; i++) {
+            update(i, deltaTime);
+        }
+    }
+
+    // Steps a packet that is not in any store, by passing it through a scratch one
+    static void updateDetached(Packet packet, double deltaTime) {
+        PacketStore scratch = SCRATCH.get();
+        scratch.add(packet);
+        scratch.update(0, deltaTime);
+        scratch.removeAt(0);
+    }
+
+    static void applyImpactDetached(Packet packet, double impactX, double impactY, double force) {
+        PacketStore scratch = SCRATCH.get();
+        scratch.add(packet);
+        scratch.applyImpact(0, impactX, impactY, force);
+        scratch.removeAt(0);
+    }
+
+    // Steering, wire following and the per-type speed rule for one slot
+    void update(int i, double deltaTime) {
+        previousX[i] = x[i];
+        previousY[i] = y[i];
+        if (moving[i]) {
+            if (wire[i] != null) {
+                moveAlongWire(i, deltaTime);
+            } else {
+                move(i, deltaTime);
+            }
+        }
+        if (type[i] == TRIANGLE) {
+            speed[i] = TrianglePacket.boostSpeed(speed[i]);
+        }
+    }
+
+    private void move(int i, double deltaTime) {
+        double dx = targetX[i] - x[i];
+        double dy = targetY[i] - y[i];
+        double distance = Math.sqrt(dx * dx + dy * dy);
+
+        if (distance < 5) {
+            moving[i] = false;
+            return;
+        }
+
+        dx /= distance;
+        dy /= distance;
+
+        double s = speed[i];
+        if (distance > 100) {
+            s = Math.min(s + acceleration[i] * deltaTime, maxSpeed[i]);
+        } else {
+            s = Math.max(s - deceleration[i] * deltaTime, 0);
+        }
+        speed[i] = s;
+
+        x[i] += dx * s * deltaTime;
+        y[i] += dy * s * deltaTime;
+    }
+
+    // Stopped inside the braking distance of its target: every further update
+    // brakes from zero and leaves it where it is
+    boolean isStalled(int i) {
+        if (!moving[i] || speed[i] != 0) return false;
+        double remaining;
+        if (wire[i] != null) {
+            remaining = wire[i].getLength() - travelled[i];
+        } else {
+            double dx = targetX[i] - x[i];
+            double dy = targetY[i] - y[i];
+            remaining = Math.sqrt(dx * dx + dy * dy);
+        }
+        return remaining >= 5 && remaining <= 100;
+    }
+
+    // Running along its wire at a speed no update changes, short of its next corner
+    // and of the braking distance before its target
+    boolean isCruising(int i) {
+        if (!moving[i] || wire[i] == null || speed[i] != maxSpeed[i] || !(acceleration[i] >= 0)) return false;
+        if (type[i] == TRIANGLE && TrianglePacket.boostSpeed(speed[i]) != speed[i]) return false;
+        return cruiseDistance(i) > 0;
+    }
+
+    // Distance a cruising packet covers before its next corner or its braking distance
+    double cruiseDistance(int i) {
+        Connection w = wire[i];
+        return Math.min(w.segmentEnd(segment[i]), w.getLength() - 100) - travelled[i];
+    }
+
+    // Same as that many update(i, deltaTime) calls on a cruising packet that stays within
+    // its cruise distance, apart from the last position those calls would leave behind.
+    // Each run of steps that moves the packet by the same rounded amount is taken at once.
+    void cruise(int i, long ticks, double deltaTime) {
+        Connection w = wire[i];
+        int seg = segment[i];
+        double step = speed[i] * deltaTime;
+        while (ticks > 0) {
+            long steady = Math.min(ticks, RepeatedAddition.steadySteps(travelled[i], step));
+            if (steady == 0) {
+                moveAlongWire(i, deltaTime);
+                ticks--;
+                continue;
+            }
+            double moved = RepeatedAddition.steadyIncrement(travelled[i], step);
+            x[i] = RepeatedAddition.add(x[i], w.directionX(seg) * moved, steady);
+            y[i] = RepeatedAddition.add(y[i], w.directionY(seg) * moved, steady);
+            travelled[i] = RepeatedAddition.add(travelled[i], step, steady);
+            ticks -= steady;
+        }
+    }
+
+    // Same speed rules with the distance measured along the wire. The packet is
+    // carried by however far its point on the wire moved, so knocks off the wire stay.
+    private void moveAlongWire(int i, double deltaTime) {
+        Connection w = wire[i];
+        double from = travelled[i];
+        double remaining = w.getLength() - from;
+        if (remaining < 5) {
+            moving[i] = false;
+            return;
+        }
+
+        double s = speed[i];
+        if (remaining > 100) {
+            s = Math.min(s + acceleration[i] * deltaTime, maxSpeed[i]);
+        } else {
+            s = Math.max(s - deceleration[i] * deltaTime, 0);
+        }
+        speed[i] = s;
+
+        double to = Math.min(from + s * deltaTime, w.getLength());
+        int seg = segment[i];
+        if (to <= w.segmentEnd(seg)) {
+            x[i] += w.directionX(seg) * (to - from);
+            y[i] += w.directionY(seg) * (to - from);
+        } else {
+            turnCorner(i, w, seg, from, to);
+        }
+        travelled[i] = to;
+    }
+
+    // Rare enough to keep out of the per-tick path
+    private void turnCorner(int i, Connection w, int seg, double from, double to) {
+        int next = w.segmentAt(to, seg);
+        x[i] += w.xAt(next, to) - w.xAt(seg, from);
+        y[i] += w.yAt(next, to) - w.yAt(seg, from);
+        segment[i] = next;
+    }
+
+    void applyImpact(int i, double impactX, double impactY, double force) {
+        double dx = x[i] - impactX;
+        double dy = y[i] - impactY;
+        double distanceSquared = dx * dx + dy * dy;
+        if (distanceSquared >= Packet.IMPACT_RADIUS * Packet.IMPACT_RADIUS) return;
+
+        double distance = Math.sqrt(distanceSquared);
+        double impactForce = force * (1 - distance / Packet.IMPACT_RADIUS);
+        noise[i] += impactForce;
+
+        // Push away from the impact point, along the same direction atan2 would give
+        if (distance > 0) {
+            x[i] += dx / distance * impactForce * 10;
+            y[i] += dy / distance * impactForce * 10;
+        } else {
+            x[i] += impactForce * 10;
+        }
+    }
+
+    // Moves the packet onto the start of a wire, to follow it to the port at its far end
+    void launch(int i, Connection hop) {
+        Port start = hop.getStartPort();
+        Port end = hop.getEndPort();
+        x[i] = start.getX();
+        y[i] = start.getY();
+        previousX[i] = x[i];
+        previousY[i] = y[i];
+        targetX[i] = end.getX();
+        targetY[i] = end.getY();
+        targetPort[i] = end;
+        moving[i] = true;
+        wire[i] = hop;
+        travelled[i] = 0;
+        segment[i] = 0;
+    }
+
+    int slotOfHandle(int handle) {
+        return slotOfHandle[handle];
+    }
+
+    private void moveSlot(int from, int to) {
+        x[to] = x[from];
+        y[to] = y[from];
+        previousX[to] = previousX[from];
+        previousY[to] = previousY[from];
+        targetX[to] = targetX[from];
+        targetY[to] = targetY[from];
+        speed[to] = speed[from];
+        maxSpeed[to] = maxSpeed[from];
+        acceleration[to] = acceleration[from];
+        deceleration[to] = deceleration[from];
+        noise[to] = noise[from];
+        size[to] = size[from];
+        type[to] = type[from];
+        moving[to] = moving[from];
+        targetPort[to] = targetPort[from];
+        wire[to] = wire[from];
+        travelled[to] = travelled[from];
+        segment[to] = segment[from];
+        views[to] = views[from];
+
+        int handle = handleOfSlot[from];
+        handleOfSlot[to] = handle;
+        slotOfHandle[handle] = to;
+    }
+
+    private int acquireHandle() {
+        if (freeCount > 0) {
+            return freeHandles[--freeCount];
+        }
+        if (handleCount == slotOfHandle.length) {
+            slotOfHandle = Arrays.copyOf(slotOfHandle, handleCount * 2);
+            freeHandles = Arrays.copyOf(freeHandles, handleCount * 2);
+        }
+        return handleCount++;
+    }
+
+    private void releaseHandle(int handle) {
+        slotOfHandle[handle] = -1;
+        freeHandles[freeCount++] = handle;
+    }
+
+    private void allocate(int capacity) {
+        if (x == null) {
+            x = new double[capacity];
+            y = new double[capacity];
+            previousX = new double[capacity];
+            previousY = new double[capacity];
+            targetX = new double[capacity];
+            targetY = new double[capacity];
+            speed = new double[capacity];
+            maxSpeed = new double[capacity];
+            acceleration = new double[capacity];
+            deceleration = new double[capacity];
+            noise = new double[capacity];
+            size = new double[capacity];
+            type = new int[capacity];
+            moving = new boolean[capacity];
+            targetPort = new Port[capacity];
+            wire = new Connection[capacity];
+            travelled = new double[capacity];
+            segment = new int[capacity];
+            views = new Packet[capacity];
+            handleOfSlot = new int[capacity];
+            return;
+        }
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        previousX = Arrays.copyOf(previousX, capacity);
+        previousY = Arrays.copyOf(previousY, capacity);
+        targetX = Arrays.copyOf(targetX, capacity);
+        targetY = Arrays.copyOf(targetY, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        maxSpeed = Arrays.copyOf(maxSpeed, capacity);
+        acceleration = Arrays.copyOf(acceleration, capacity);
+        deceleration = Arrays.copyOf(deceleration, capacity);
+        noise = Arrays.copyOf(noise, capacity);
+        size = Arrays.copyOf(size, capacity);
+        type = Arrays.copyOf(type, capacity);
+        moving = Arrays.copyOf(moving, capacity);
+        targetPort = Arrays.copyOf(targetPort, capacity);
+        wire = Arrays.copyOf(wire, capacity);
+        travelled = Arrays.copyOf(travelled, capacity);
+        segment = Arrays.copyOf(segment, capacity);
+        views = Arrays.copyOf(views, capacity);
+        handleOfSlot = Arrays.copyOf(handleOfSlot, capacity);
+    }
+}
@@ -0,0 +1,180 @@
+package com.networkgame.model;
+
+import com.networkgame.util.SpatialHashGrid;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join versions of the per-packet phases of a tick, used by GameState once
+ * enough packets are in flight. Motion and impact wave pushes are applied over
+ * disjoint slot ranges. Collision detection walks disjoint ranges of the broad
+ * phase, recording the touching pairs of each range; they are handed back on the
+ * calling thread in the order the serial walk finds them in, and GameState
+ * resolves impacts from there one packet at a time, exactly as a
+ * single-threaded tick does.
+ */
+class ParallelPhysics {
+    // Fewest slots worth a task of their own
+    private static final int MIN_CHUNK = 512;
+    // Chunks per worker, so an uneven range does not leave the others waiting
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    interface PairTest {
+        boolean test(int first, int second);
+    }
+
+    private interface ChunkBody {
+        void run(int chunk, int from, int to);
+    }
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private Collector[] collectors = new Collector[0];
+
+    // Arguments of the phase being run. The bodies are built once and read them
+    // from here, and the task tree is kept per chunk count, so a tick allocates nothing.
+    private PacketStore store;
+    private double deltaTime;
+    private WaveField field;
+    private SpatialHashGrid grid;
+    private final ChunkBody integrateChunk = (chunk, from, to) -> {
+        for (int i = from; i < to; i++) {
+            store.update(i, deltaTime);
+        }
+    };
+    private final ChunkBody wavesChunk = (chunk, from, to) -> field.apply(store, from, to);
+    private final ChunkBody collisionsChunk = (chunk, from, to) -> grid.forEachCandidatePair(from, to, collectors[chunk]);
+
+    private Chunks tasks;
+    private ChunkBody runBody;
+    private int runCount, runChunks;
+
+    ParallelPhysics(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    // Below the threshold forking costs more than it saves
+    boolean isWorthwhile(int count) {
+        return count >= threshold && pool.getParallelism() > 1;
+    }
+
+    void integrate(PacketStore store, double deltaTime) {
+        this.store = store;
+        this.deltaTime = deltaTime;
+        run(store.size(), integrateChunk);
+    }
+
+    void propagateWaves(PacketStore store, WaveField field) {
+        this.store = store;
+        this.field = field;
+        run(store.size(), wavesChunk);
+    }
+
+    // Calls resolve for every candidate pair of the grid that passes test, in serial walk order.
+    // test runs concurrently and must only read; resolve runs on this thread.
+    void forEachCollision(SpatialHashGrid grid, PairTest test, SpatialHashGrid.PairVisitor resolve) {
+        int chunks = chunkCount(grid.size());
+        if (collectors.length < chunks) {
+            int old = collectors.length;
+            collectors = Arrays.copyOf(collectors, chunks);
+            for (int i = old; i < chunks; i++) {
+                collectors[i] = new Collector();
+            }
+        }
+        for (int i = 0; i < chunks; i++) {
+            collectors[i].test = test;
+            collectors[i].size = 0;
+        }
+
+        this.grid = grid;
+        run(grid.size(), collisionsChunk);
+        this.grid = null;
+
+        for (int c = 0; c < chunks; c++) {
+            Collector collector = collectors[c];
+            for (int k = 0; k < collector.size; k += 2) {
+                resolve.visit(collector.pairs[k], collector.pairs[k + 1]);
+            }
+            collector.test = null;
+        }
+    }
+
+    private void run(int count, ChunkBody body) {
+        int chunks = chunkCount(count);
+        if (chunks == 1) {
+            body.run(0, 0, count);
+            return;
+        }
+        if (tasks == null || tasks.last != chunks) {
+            tasks = new Chunks(this, 0, chunks);
+        }
+        // Written before the invoke, which publishes them to the workers
+        runBody = body;
+        runCount = count;
+        runChunks = chunks;
+        tasks.reinitialize();
+        try {
+            pool.invoke(tasks);
+        } finally {
+            runBody = null;
+        }
+    }
+
+    private int bound(int chunk) {
+        return (int) ((long) chunk * runCount / runChunks);
+    }
+
+    private int chunkCount(int count) {
+        int byWork = (count + MIN_CHUNK - 1) / MIN_CHUNK;
+        return Math.max(1, Math.min(byWork, pool.getParallelism() * CHUNKS_PER_WORKER));
+    }
+
+    // Splits chunks [first, last) in halves until each task owns one. The tree is
+    // built once per chunk count and reinitialized before each run.
+    private static final class Chunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ParallelPhysics owner;
+        private final int first, last;
+        private final Chunks left, right;
+
+        Chunks(ParallelPhysics owner, int first, int last) {
+            this.owner = owner;
+            this.first = first;
+            this.last = last;
+            int middle = (first + last) >>> 1;
+            this.left = last - first == 1 ? null : new Chunks(owner, first, middle);
+            this.right = last - first == 1 ? null : new Chunks(owner, middle, last);
+        }
+
+        @Override
+        protected void compute() {
+            if (left == null) {
+                owner.runBody.run(first, owner.bound(first), owner.bound(last));
+                return;
+            }
+            left.reinitialize();
+            right.reinitialize();
+            invokeAll(left, right);
+        }
+    }
+
+    // Colliding pairs found in one chunk, flattened, reused from tick to tick
+    private static final class Collector implements SpatialHashGrid.PairVisitor {
+        PairTest test;
+        int[] pairs = new int[64];
+        int size;
+
+        @Override
+        public void visit(int first, int second) {
+            if (!test.test(first, second)) return;
+            if (size + 2 > pairs.length) {
+                pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            }
+            pairs[size++] = first;
+            pairs[size++] = second;
+        }
+    }
+}
@@ -1,46 +1,36 @@
 package com.networkgame.model;
 
+import com.networkgame.util.RenderCache;
 import java.awt.*;
-import java.awt.geom.Rectangle2D;
-import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 
 public class Port {
     private double x, y;
     private PortType type;
     private boolean isOccupied;
+    private boolean isInput;
     private static final double SIZE = 10;
     private NetworkSystem parentSystem;
+    // Position in the parent system's input or output port list
+    private int index;
 
     public Port(double x, double y, PortType type, boolean isInput) {
         this.x = x;
         this.y = y;
         this.type = type;
+        this.isInput = isInput;
         this.isOccupied = false;
     }
 
     public void draw(Graphics2D g2d) {
         g2d.setColor(isOccupied ? Color.RED : Color.BLACK);
         
-        if (type == PortType.SQUARE) {
-            g2d.fill(new Rectangle2D.Double(x - SIZE/2, y - SIZE/2, SIZE, SIZE));
-        } else {
-            Path2D triangle = new Path2D.Double();
-            triangle.moveTo(x, y - SIZE/2);
-            triangle.lineTo(x - SIZE/2, y + SIZE/2);
-            triangle.lineTo(x + SIZE/2, y + SIZE/2);
-            triangle.closePath();
-            g2d.fill(triangle);
-        }
+        Shape shape = type == PortType.SQUARE ? RenderCache.UNIT_SQUARE : RenderCache.UNIT_WIDE_TRIANGLE;
+        RenderCache.fill(g2d, shape, x, y, SIZE / 2);
     }
 
     public boolean isCompatible(Packet packet) {
-        if (packet instanceof SquarePacket) {
-            return type == PortType.SQUARE;
-        } else if (packet instanceof TrianglePacket) {
-            return type == PortType.TRIANGLE;
-        }
-        return false;
+        return packet.getType() == type;
     }
 
     public boolean isOccupied() {
@@ -48,7 +38,12 @@ public class Port {
     }
 
     public void setOccupied(boolean occupied) {
+        if (isOccupied == occupied) return;
         isOccupied = occupied;
+        // Keep the parent's occupancy counters and free-port sets in step
+        if (parentSystem != null) {
+            parentSystem.portOccupancyChanged(this);
+        }
     }
 
     public double getX() {
@@ -63,6 +58,18 @@ public class Port {
         return type;
     }
 
+    public boolean isInput() {
+        return isInput;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
     public NetworkSystem getParentSystem() {
         return parentSystem;
     }
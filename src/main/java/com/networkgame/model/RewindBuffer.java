@@ -0,0 +1,403 @@
+package com.networkgame.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Bounded history of {@link GameState} snapshots used to move the simulation
+ * backward and forward in time. A snapshot is taken every few ticks; every few
+ * snapshots one is stored whole (a keyframe) and the rest as run-length encoded
+ * XOR deltas against the snapshot before them. Seeking restores the nearest
+ * snapshot at or before the target and re-simulates the remaining ticks with
+ * the fixed step, which reproduces the original run exactly.
+ *
+ * Seeking back keeps the later snapshots. While the replay matches them they
+ * are only checked, not stored again, so a later forward seek can jump
+ * straight to them; the first snapshot that differs, e.g. after the player
+ * changed a wire, discards the rest of that history.
+ *
+ * Snapshots are encoded into reused buffers and stored in one circular arena
+ * that grows up to the budget, so once it is full recording allocates
+ * nothing: the oldest keyframe groups are overwritten instead.
+ */
+public class RewindBuffer {
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 15;
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 8;
+    public static final long DEFAULT_BUDGET_BYTES = 4L * 1024 * 1024;
+    private static final int INITIAL_ARENA_BYTES = 64 * 1024;
+
+    private final double timeStep;
+    private final int snapshotInterval;
+    private final int keyframeInterval;
+    private final long budgetBytes;
+
+    // Snapshots oldest first; each one's stored bytes are arena[offset, offset + size)
+    private int count;
+    private long[] ticks = new long[64];
+    private boolean[] keyframes = new boolean[64];
+    private int[] lengths = new int[64];
+    private int[] offsets = new int[64];
+    private int[] sizes = new int[64];
+    private byte[] arena = new byte[0];
+    // Where the next snapshot's bytes go
+    private int tail;
+    private long usedBytes;
+
+    // Snapshot the state is at or past; below count - 1 while replaying recorded history
+    private int cursor = -1;
+    // Full encoding of the cursor snapshot, the base for the next delta
+    private byte[] previous = new byte[0];
+    private int previousLength;
+    private int ticksSinceSnapshot;
+    private int snapshotsSinceKeyframe;
+
+    private final BufferOutput encoded = new BufferOutput(4096);
+    private byte[] deltaScratch = new byte[4096];
+    private byte[] decodeScratch = new byte[0];
+    private int deltaPosition;
+
+    public RewindBuffer(double timeStep) {
+        this(timeStep, DEFAULT_BUDGET_BYTES);
+    }
+
+    public RewindBuffer(double timeStep, long budgetBytes) {
+        this(timeStep, budgetBytes, DEFAULT_SNAPSHOT_INTERVAL, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    public RewindBuffer(double timeStep, long budgetBytes, int snapshotInterval, int keyframeInterval) {
+        if (timeStep <= 0 || snapshotInterval < 1 || keyframeInterval < 1) {
+            throw new IllegalArgumentException("Rewind intervals must be positive");
+        }
+        this.timeStep = timeStep;
+        this.budgetBytes = budgetBytes;
+        this.snapshotInterval = snapshotInterval;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    // Called by GameState after every tick
+    void record(GameState state) {
+        if (cursor >= 0 && ++ticksSinceSnapshot < snapshotInterval) {
+            return;
+        }
+        ticksSinceSnapshot = 0;
+
+        encoded.reset();
+        try {
+            state.writeState(encoded);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] current = encoded.array();
+        int length = encoded.size();
+        long tick = tickOf(state);
+
+        if (cursor < count - 1) {
+            if (matchesNext(tick, current, length)) {
+                cursor++;
+                snapshotsSinceKeyframe = keyframes[cursor] ? 0 : snapshotsSinceKeyframe + 1;
+                setPrevious(current, length);
+                return;
+            }
+            // The run left the recorded history; nothing after this point applies any more
+            truncateAfter(cursor);
+        }
+
+        boolean keyframe = cursor < 0 || snapshotsSinceKeyframe + 1 >= keyframeInterval;
+        if (!keyframe) {
+            int deltaLength = encodeDelta(previous, previousLength, current, length);
+            // Making room may have dropped the keyframe the delta depends on
+            keyframe = !append(tick, false, length, deltaScratch, deltaLength);
+        }
+        if (keyframe) {
+            append(tick, true, length, current, length);
+        }
+        cursor = count - 1;
+        snapshotsSinceKeyframe = keyframe ? 0 : snapshotsSinceKeyframe + 1;
+        setPrevious(current, length);
+    }
+
+    /**
+     * Moves the state to the given elapsed time. The newest snapshot at or
+     * before the target is restored when the target is behind the state or that
+     * snapshot is ahead of it; the ticks still missing are then simulated.
+     */
+    public void seek(GameState state, double targetTime) {
+        long targetTick = Math.max(0, Math.round(targetTime / timeStep));
+        long currentTick = tickOf(state);
+
+        // Later snapshots only hold while the run still matches them, e.g. the player
+        // may have changed a wire since seeking back; the next snapshot checks that
+        if (targetTick > currentTick && cursor < count - 1) {
+            for (int i = ticksSinceSnapshot; i < snapshotInterval && currentTick < targetTick
+                    && state.getRemainingTime() > 0; i++) {
+                state.update(timeStep);
+                currentTick++;
+            }
+        }
+
+        int index = count - 1;
+        while (index > 0 && ticks[index] > targetTick) {
+            index--;
+        }
+        boolean ahead = index >= 0 && ticks[index] > currentTick && ticks[index] <= targetTick;
+        if (index >= 0 && (targetTick < currentTick || ahead)) {
+            decodeInto(index);
+            state.readState(ByteBuffer.wrap(previous, 0, previousLength));
+            cursor = index;
+            ticksSinceSnapshot = 0;
+            snapshotsSinceKeyframe = 0;
+            for (int i = index; i > 0 && !keyframes[i]; i--) {
+                snapshotsSinceKeyframe++;
+            }
+            currentTick = ticks[index];
+        }
+
+        for (long tick = currentTick; tick < targetTick && state.getRemainingTime() > 0; tick++) {
+            state.update(timeStep);
+        }
+    }
+
+    public double getOldestTime() {
+        return count == 0 ? 0 : ticks[0] * timeStep;
+    }
+
+    public int getSnapshotCount() {
+        return count;
+    }
+
+    public long getMemoryUsage() {
+        return usedBytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    private long tickOf(GameState state) {
+        return Math.round(state.getElapsedTime() / timeStep);
+    }
+
+    // Whether the snapshot after the cursor is exactly this encoding
+    private boolean matchesNext(long tick, byte[] current, int length) {
+        int next = cursor + 1;
+        if (ticks[next] != tick || lengths[next] != length) {
+            return false;
+        }
+        if (keyframes[next]) {
+            return Arrays.equals(arena, offsets[next], offsets[next] + length, current, 0, length);
+        }
+        decodeScratch = ensure(decodeScratch, length);
+        applyDelta(previous, previousLength, offsets[next], sizes[next], decodeScratch, length);
+        return Arrays.equals(decodeScratch, 0, length, current, 0, length);
+    }
+
+    private void setPrevious(byte[] current, int length) {
+        previous = ensure(previous, length);
+        System.arraycopy(current, 0, previous, 0, length);
+        previousLength = length;
+    }
+
+    // Leaves the full encoding of snapshot index in previous
+    private void decodeInto(int index) {
+        int keyframe = index;
+        while (!keyframes[keyframe]) {
+            keyframe--;
+        }
+        previous = ensure(previous, sizes[keyframe]);
+        System.arraycopy(arena, offsets[keyframe], previous, 0, sizes[keyframe]);
+        previousLength = sizes[keyframe];
+        for (int i = keyframe + 1; i <= index; i++) {
+            decodeScratch = ensure(decodeScratch, lengths[i]);
+            applyDelta(previous, previousLength, offsets[i], sizes[i], decodeScratch, lengths[i]);
+            byte[] swap = previous;
+            previous = decodeScratch;
+            decodeScratch = swap;
+            previousLength = lengths[i];
+        }
+    }
+
+    // Stores a snapshot after the newest one. A delta is refused (false) when
+    // there is only room for it by dropping its own keyframe group.
+    private boolean append(long tick, boolean keyframe, int length, byte[] data, int size) {
+        int offset;
+        while ((offset = freeOffset(size)) < 0) {
+            if (arena.length < budgetBytes || count == 0) {
+                grow(size);
+            } else if (!evictOldestGroup(!keyframe)) {
+                return false;
+            }
+        }
+        if (count == ticks.length) {
+            int capacity = count * 2;
+            ticks = Arrays.copyOf(ticks, capacity);
+            keyframes = Arrays.copyOf(keyframes, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        System.arraycopy(data, 0, arena, offset, size);
+        ticks[count] = tick;
+        keyframes[count] = keyframe;
+        lengths[count] = length;
+        offsets[count] = offset;
+        sizes[count] = size;
+        count++;
+        tail = offset + size;
+        usedBytes += size;
+        return true;
+    }
+
+    // Arena offset where size bytes fit without overwriting a stored snapshot, or -1
+    private int freeOffset(int size) {
+        if (count == 0) {
+            return size <= arena.length ? 0 : -1;
+        }
+        int head = offsets[0];
+        if (head < tail) {
+            if (tail + size <= arena.length) return tail;
+            // Wrap to the start, leaving the end of the arena unused this lap
+            return size <= head ? 0 : -1;
+        }
+        return head > tail && tail + size <= head ? tail : -1;
+    }
+
+    // Drops the oldest keyframe group; with keepNewest, not if it is the only one left
+    private boolean evictOldestGroup(boolean keepNewest) {
+        int end = 1;
+        while (end < count && !keyframes[end]) {
+            end++;
+        }
+        if (end == count && keepNewest) {
+            return false;
+        }
+        for (int i = 0; i < end; i++) {
+            usedBytes -= sizes[i];
+        }
+        count -= end;
+        cursor -= end;
+        System.arraycopy(ticks, end, ticks, 0, count);
+        System.arraycopy(keyframes, end, keyframes, 0, count);
+        System.arraycopy(lengths, end, lengths, 0, count);
+        System.arraycopy(offsets, end, offsets, 0, count);
+        System.arraycopy(sizes, end, sizes, 0, count);
+        if (count == 0) {
+            tail = 0;
+        }
+        return true;
+    }
+
+    // Larger arena, up to the budget, or just enough for one snapshot that is
+    // bigger on its own; stored snapshots are packed at its start in order
+    private void grow(int size) {
+        long wanted = Math.max(Math.max(INITIAL_ARENA_BYTES, arena.length * 2L), usedBytes + size);
+        int capacity = (int) Math.min(Math.max(Math.min(wanted, budgetBytes), usedBytes + size), Integer.MAX_VALUE - 8);
+        byte[] grown = new byte[capacity];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(arena, offsets[i], grown, position, sizes[i]);
+            offsets[i] = position;
+            position += sizes[i];
+        }
+        arena = grown;
+        tail = position;
+    }
+
+    private void truncateAfter(int index) {
+        for (int i = index + 1; i < count; i++) {
+            usedBytes -= sizes[i];
+        }
+        count = index + 1;
+        tail = offsets[index] + sizes[index];
+    }
+
+    private static byte[] ensure(byte[] array, int capacity) {
+        return array.length >= capacity ? array : new byte[Math.max(capacity, array.length * 2)];
+    }
+
+    // Delta format: repeated (unchanged run, literal run, literal bytes), runs as varints.
+    // Literals are XORed with the base so either side can be recovered from the other.
+    private int encodeDelta(byte[] base, int baseLength, byte[] current, int length) {
+        int out = 0;
+        int i = 0;
+        while (i < length) {
+            int runStart = i;
+            while (i < length && xorAt(base, baseLength, current, i) == 0) {
+                i++;
+            }
+            int zeros = i - runStart;
+            int literalStart = i;
+            // A literal run ends at the first stretch of four unchanged bytes
+            while (i < length && !unchangedAhead(base, baseLength, current, length, i)) {
+                i++;
+            }
+            int literals = i - literalStart;
+
+            ensureScratch(out + 10 + literals);
+            out = writeVarint(zeros, out);
+            out = writeVarint(literals, out);
+            for (int k = literalStart; k < literalStart + literals; k++) {
+                deltaScratch[out++] = xorAt(base, baseLength, current, k);
+            }
+        }
+        return out;
+    }
+
+    // Rebuilds a snapshot of the given length from its base and the delta stored at arena[offset]
+    private void applyDelta(byte[] base, int baseLength, int offset, int size, byte[] result, int length) {
+        System.arraycopy(base, 0, result, 0, Math.min(baseLength, length));
+        if (length > baseLength) {
+            Arrays.fill(result, baseLength, length, (byte) 0);
+        }
+        deltaPosition = offset;
+        int end = offset + size;
+        int position = 0;
+        while (position < length && deltaPosition < end) {
+            position += readVarint();
+            int literals = readVarint();
+            for (int k = 0; k < literals; k++, position++) {
+                result[position] ^= arena[deltaPosition++];
+            }
+        }
+    }
+
+    private static byte xorAt(byte[] base, int baseLength, byte[] current, int i) {
+        return (byte) (current[i] ^ (i < baseLength ? base[i] : 0));
+    }
+
+    private static boolean unchangedAhead(byte[] base, int baseLength, byte[] current, int length, int i) {
+        int end = Math.min(length, i + 4);
+        for (int k = i; k < end; k++) {
+            if (xorAt(base, baseLength, current, k) != 0) return false;
+        }
+        return true;
+    }
+
+    private void ensureScratch(int capacity) {
+        if (deltaScratch.length < capacity) {
+            deltaScratch = Arrays.copyOf(deltaScratch, Math.max(capacity, deltaScratch.length * 2));
+        }
+    }
+
+    private int writeVarint(int value, int out) {
+        while ((value & ~0x7f) != 0) {
+            deltaScratch[out++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        deltaScratch[out++] = (byte) value;
+        return out;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = arena[deltaPosition++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,283 @@
+package com.networkgame.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Next-hop tables compiled from the wiring. Every system knows the shortest
+ * total wire length from it to a reference system, and for each packet type
+ * the wire to leave on: one starting at a port of that type if any leads on,
+ * otherwise any, the shortest route winning in both cases. Only wires ending
+ * strictly closer to a reference lead on (or the one the shortest route takes),
+ * so following next hops can never go round in a loop. Adding a wire only
+ * settles the systems it brings closer; removing one only re-settles the
+ * systems whose shortest route ran along it.
+ */
+class RoutingTable {
+    private static final int TYPES = PortType.values().length;
+    private static final double UNREACHABLE = Double.POSITIVE_INFINITY;
+
+    private final List<NetworkSystem> systems = new ArrayList<>();
+    private final List<List<Connection>> outgoing = new ArrayList<>();
+    private final List<List<Connection>> incoming = new ArrayList<>();
+    // Wire length left to a reference system, and the wire that distance runs along
+    private double[] distance = new double[0];
+    private Connection[] via = new Connection[0];
+    // Indexed by system * TYPES + type
+    private Connection[] nextHop = new Connection[0];
+
+    // Systems touched by the current update, marked with the update's stamp
+    private int[] mark = new int[0];
+    private int stamp;
+    private int[] touched = new int[0];
+    private int touchedCount;
+    private final Heap heap = new Heap();
+
+    void addSystem(NetworkSystem system) {
+        int index = systems.size();
+        system.setIndex(index);
+        systems.add(system);
+        outgoing.add(new ArrayList<>());
+        incoming.add(new ArrayList<>());
+        if (distance.length == index) {
+            int capacity = Math.max(16, index * 2);
+            distance = Arrays.copyOf(distance, capacity);
+            via = Arrays.copyOf(via, capacity);
+            nextHop = Arrays.copyOf(nextHop, capacity * TYPES);
+            mark = Arrays.copyOf(mark, capacity);
+            touched = Arrays.copyOf(touched, capacity);
+        }
+        distance[index] = UNREACHABLE;
+    }
+
+    // Wire a packet of this type should leave the system on, or null if no route leads on
+    Connection nextHop(NetworkSystem system, PortType type) {
+        return nextHop[system.getIndex() * TYPES + type.ordinal()];
+    }
+
+    double distance(NetworkSystem system) {
+        return distance[system.getIndex()];
+    }
+
+    void addConnection(Connection connection) {
+        int from = connection.getStartPort().getParentSystem().getIndex();
+        int to = connection.getEndPort().getParentSystem().getIndex();
+        outgoing.get(from).add(connection);
+        incoming.get(to).add(connection);
+
+        beginUpdate();
+        double candidate = connection.getLength() + arrivalCost(to);
+        if (candidate < distance[from]) {
+            distance[from] = candidate;
+            via[from] = connection;
+            heap.push(candidate, from);
+            settle();
+        }
+        touch(from);
+        refreshTouched();
+    }
+
+    void removeConnection(Connection connection) {
+        int from = connection.getStartPort().getParentSystem().getIndex();
+        int to = connection.getEndPort().getParentSystem().getIndex();
+        outgoing.get(from).remove(connection);
+        incoming.get(to).remove(connection);
+
+        beginUpdate();
+        touch(from);
+        if (via[from] == connection) {
+            // Everything whose route ran through the wire loses it, then re-settles
+            // from the neighbours that kept theirs
+            for (int k = 0; k < touchedCount; k++) {
+                int system = touched[k];
+                distance[system] = UNREACHABLE;
+                via[system] = null;
+                if (isReference(system)) continue;
+                for (Connection wire : incoming.get(system)) {
+                    int upstream = wire.getStartPort().getParentSystem().getIndex();
+                    if (via[upstream] == wire) {
+                        touch(upstream);
+                    }
+                }
+            }
+            for (int k = 0; k < touchedCount; k++) {
+                int system = touched[k];
+                for (Connection wire : outgoing.get(system)) {
+                    double candidate = wire.getLength() + arrivalCost(wire.getEndPort().getParentSystem().getIndex());
+                    if (candidate < distance[system]) {
+                        distance[system] = candidate;
+                        via[system] = wire;
+                    }
+                }
+                if (distance[system] < UNREACHABLE) {
+                    heap.push(distance[system], system);
+                }
+            }
+            settle();
+        }
+        refreshTouched();
+    }
+
+    // Recompiles every table from scratch, e.g. after the wiring was replaced wholesale
+    void rebuild(List<Connection> connections) {
+        for (int i = 0; i < systems.size(); i++) {
+            outgoing.get(i).clear();
+            incoming.get(i).clear();
+            distance[i] = UNREACHABLE;
+            via[i] = null;
+        }
+        beginUpdate();
+        for (Connection connection : connections) {
+            int from = connection.getStartPort().getParentSystem().getIndex();
+            int to = connection.getEndPort().getParentSystem().getIndex();
+            outgoing.get(from).add(connection);
+            incoming.get(to).add(connection);
+            if (isReference(to) && connection.getLength() < distance[from]) {
+                distance[from] = connection.getLength();
+                via[from] = connection;
+                heap.push(distance[from], from);
+            }
+        }
+        settle();
+        for (int i = 0; i < systems.size(); i++) {
+            refreshNextHops(i);
+        }
+    }
+
+    // Dijkstra outwards from the queued systems along wires in reverse, touching
+    // every system whose distance shrinks
+    private void settle() {
+        while (!heap.isEmpty()) {
+            double settled = heap.peekKey();
+            int system = heap.pop();
+            if (settled > distance[system]) continue;
+            touch(system);
+            // A packet reaching a reference system is delivered, so routes never pass through one
+            if (isReference(system)) continue;
+            for (Connection wire : incoming.get(system)) {
+                int upstream = wire.getStartPort().getParentSystem().getIndex();
+                double candidate = wire.getLength() + settled;
+                if (candidate < distance[upstream]) {
+                    distance[upstream] = candidate;
+                    via[upstream] = wire;
+                    heap.push(candidate, upstream);
+                }
+            }
+        }
+    }
+
+    // Touched systems and everything wired into them may now prefer another wire
+    private void refreshTouched() {
+        int count = touchedCount;
+        for (int k = 0; k < count; k++) {
+            for (Connection wire : incoming.get(touched[k])) {
+                touch(wire.getStartPort().getParentSystem().getIndex());
+            }
+        }
+        for (int k = 0; k < touchedCount; k++) {
+            refreshNextHops(touched[k]);
+        }
+    }
+
+    private void refreshNextHops(int system) {
+        List<Connection> wires = outgoing.get(system);
+        for (int type = 0; type < TYPES; type++) {
+            Connection best = null;
+            boolean bestCompatible = false;
+            double bestLength = UNREACHABLE;
+            for (int w = 0; w < wires.size(); w++) {
+                Connection wire = wires.get(w);
+                double ahead = arrivalCost(wire.getEndPort().getParentSystem().getIndex());
+                // A wire to a system no closer could lead back here; the shortest route's own wire
+                // always leads on, even at zero length
+                if (!(ahead < distance[system]) && wire != via[system]) continue;
+                double length = wire.getLength() + ahead;
+                boolean compatible = wire.getStartPort().getType().ordinal() == type;
+                if (best == null || (compatible && !bestCompatible)
+                    || (compatible == bestCompatible && length < bestLength)) {
+                    best = wire;
+                    bestCompatible = compatible;
+                    bestLength = length;
+                }
+            }
+            nextHop[system * TYPES + type] = best;
+        }
+    }
+
+    // Route length still ahead of a packet arriving at the system
+    private double arrivalCost(int system) {
+        return isReference(system) ? 0 : distance[system];
+    }
+
+    private boolean isReference(int system) {
+        return systems.get(system).isReferenceSystem();
+    }
+
+    private void beginUpdate() {
+        touchedCount = 0;
+        if (++stamp == 0) {
+            Arrays.fill(mark, 0);
+            stamp = 1;
+        }
+    }
+
+    private void touch(int system) {
+        if (mark[system] != stamp) {
+            mark[system] = stamp;
+            touched[touchedCount++] = system;
+        }
+    }
+
+    // Binary min-heap of systems keyed by distance; stale entries are skipped on pop
+    private static final class Heap {
+        private double[] keys = new double[16];
+        private int[] values = new int[16];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        void push(double key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                keys[i] = keys[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int pop() {
+            int top = values[0];
+            size--;
+            double key = keys[size];
+            int value = values[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (keys[child] >= key) break;
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return top;
+        }
+    }
+}
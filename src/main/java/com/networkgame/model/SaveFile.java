@@ -0,0 +1,201 @@
+package com.networkgame.model;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * A game in progress saved to disk: a versioned header, the systems and ports
+ * of the level, then the same binary image of the state that rewind snapshots
+ * hold. Encoding only copies the state into a buffer, so it can run on the
+ * thread that owns the state while the file is written elsewhere. Files are
+ * written to a temporary name and renamed over the old save, so a crash leaves
+ * either the previous save or the new one, never half of one. Loading reads the
+ * whole file onto the heap first; a mapping would hold the file open until it
+ * is collected, and on Windows that blocks the next save's rename over it.
+ * Any inconsistency, such as a count larger than the bytes left, is reported
+ * as a corrupt file.
+ *
+ * Layout, big-endian:
+ *   int magic, short version, int level
+ *   int effect count, double seconds left per effect
+ *   int system count, per system: x, y, width, height, reference flag,
+ *     input and output port types (count, then one byte each)
+ *   int state length, state bytes
+ */
+public class SaveFile {
+    public static final String SAVE_DIRECTORY_PROPERTY = "networkgame.save.dir";
+    private static final String AUTOSAVE_NAME = "autosave.bin";
+    private static final int MAGIC = 0x4E475356; // "NGSV"
+    private static final short VERSION = 2;
+    // Rough encoded size of a packet and of a system with its ports and stored packets
+    private static final int PACKET_BYTES = 128;
+    private static final int SYSTEM_BYTES = 1024;
+    // Far beyond any level; a corrupt size would otherwise fill the hit-test index
+    private static final double MAX_SYSTEM_SIZE = 10_000;
+
+    private final int level;
+    private final double[] effectSecondsLeft;
+    private final GameState gameState;
+
+    private SaveFile(int level, double[] effectSecondsLeft, GameState gameState) {
+        this.level = level;
+        this.effectSecondsLeft = effectSecondsLeft;
+        this.gameState = gameState;
+    }
+
+    // Where the game autosaves: networkgame.save.dir if set, else ~/.networkgame
+    public static Path getAutosavePath() {
+        String directory = System.getProperty(SAVE_DIRECTORY_PROPERTY);
+        Path base = directory != null && !directory.isEmpty()
+            ? Paths.get(directory) : Paths.get(System.getProperty("user.home"), ".networkgame");
+        return base.resolve(AUTOSAVE_NAME);
+    }
+
+    // Complete save file contents for the state as it is now, ready to be read from.
+    // Sized up front so a large state is not copied over and over while it grows.
+    public static ByteBuffer encode(int level, double[] effectSecondsLeft, GameState state) {
+        BufferOutput out = new BufferOutput(4096
+            + state.getPacketStore().size() * PACKET_BYTES + state.getSystems().size() * SYSTEM_BYTES);
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(level);
+            out.writeInt(effectSecondsLeft.length);
+            for (double seconds : effectSecondsLeft) {
+                out.writeDouble(seconds);
+            }
+
+            List<NetworkSystem> systems = state.getSystems();
+            out.writeInt(systems.size());
+            for (NetworkSystem system : systems) {
+                out.writeDouble(system.getBounds().getX());
+                out.writeDouble(system.getBounds().getY());
+                out.writeDouble(system.getBounds().getWidth());
+                out.writeDouble(system.getBounds().getHeight());
+                out.writeBoolean(system.isReferenceSystem());
+                writePortTypes(out, system.getInputPorts());
+                writePortTypes(out, system.getOutputPorts());
+            }
+
+            // Length goes in front of the state; patched in once the state is written
+            int lengthAt = out.size();
+            out.writeInt(0);
+            state.writeState(out);
+            out.putInt(lengthAt, out.size() - lengthAt - 4);
+            return out.toBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writePortTypes(DataOutput out, List<Port> ports) throws IOException {
+        out.writeInt(ports.size());
+        for (Port port : ports) {
+            out.writeByte(port.getType().ordinal());
+        }
+    }
+
+    // Replaces the file at path with the encoded save, atomically where the file system allows
+    public static void write(Path path, ByteBuffer encoded) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = encoded.duplicate();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                // On disk before the rename can make it visible
+                channel.force(false);
+            }
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static SaveFile read(Path path) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        try {
+            return decode(in);
+        } catch (BufferUnderflowException | IllegalStateException | IndexOutOfBoundsException
+                 | NegativeArraySizeException | OutOfMemoryError e) {
+            throw new IOException("Corrupt save file " + path + ": " + e, e);
+        }
+    }
+
+    static SaveFile decode(ByteBuffer in) throws IOException {
+        if (in.remaining() < 6 || in.getInt() != MAGIC) {
+            throw new IOException("Not a save file");
+        }
+        short version = in.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported save version " + version);
+        }
+        int level = in.getInt();
+        double[] effectSecondsLeft = new double[GameState.readCount(in)];
+        for (int i = 0; i < effectSecondsLeft.length; i++) {
+            effectSecondsLeft[i] = in.getDouble();
+        }
+
+        GameState state = new GameState();
+        int systemCount = GameState.readCount(in);
+        for (int i = 0; i < systemCount; i++) {
+            double x = GameState.readCoordinate(in);
+            double y = GameState.readCoordinate(in);
+            double width = readSize(in);
+            double height = readSize(in);
+            NetworkSystem system = new NetworkSystem(x, y, width, height, in.get() != 0);
+            for (int k = GameState.readCount(in); k > 0; k--) {
+                system.addInputPort(GameState.readType(in));
+            }
+            for (int k = GameState.readCount(in); k > 0; k--) {
+                system.addOutputPort(GameState.readType(in));
+            }
+            state.addSystem(system);
+        }
+
+        int stateLength = in.getInt();
+        if (stateLength != in.remaining()) {
+            throw new IOException("Save file holds " + in.remaining() + " state bytes, header says " + stateLength);
+        }
+        state.readState(in);
+        return new SaveFile(level, effectSecondsLeft, state);
+    }
+
+    private static double readSize(ByteBuffer in) {
+        double size = in.getDouble();
+        if (!(size >= 0 && size <= MAX_SYSTEM_SIZE)) {
+            throw new IllegalStateException("System size " + size + " out of range");
+        }
+        return size;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public double[] getEffectSecondsLeft() {
+        return effectSecondsLeft;
+    }
+
+    public GameState getGameState() {
+        return gameState;
+    }
+}
@@ -1,25 +1,21 @@
 package com.networkgame.model;
 
+import com.networkgame.util.RenderCache;
 import java.awt.*;
-import java.awt.geom.Rectangle2D;
-import java.awt.geom.Point2D;
 
 public class SquarePacket extends Packet {
+    static final Color COLOR = Color.RED;
+
     public SquarePacket(double x, double y, Port targetPort) {
         super(x, y, targetPort);
         this.size = 2.0;
-        this.color = Color.RED;
+        this.color = COLOR;
         this.speed = 0.02; // Base speed
     }
 
     @Override
-    protected Shape getShape() {
-        return new Rectangle2D.Double(
-            x - size,
-            y - size,
-            size * 2,
-            size * 2
-        );
+    protected Shape getUnitShape() {
+        return RenderCache.UNIT_SQUARE;
     }
 
     @Override
@@ -28,6 +24,11 @@ public class SquarePacket extends Packet {
         // Square packets move at constant speed
     }
 
+    @Override
+    public PortType getType() {
+        return PortType.SQUARE;
+    }
+
     @Override
     public int getReward() {
         return 1; // Square packets give 1 coin
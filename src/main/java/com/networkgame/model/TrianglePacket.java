@@ -1,37 +1,34 @@
 package com.networkgame.model;
 
+import com.networkgame.util.RenderCache;
 import java.awt.*;
-import java.awt.geom.Path2D;
-import java.awt.geom.Point2D;
 
 public class TrianglePacket extends Packet {
+    static final Color COLOR = Color.YELLOW;
+
     public TrianglePacket(double x, double y, Port targetPort) {
         super(x, y, targetPort);
         this.size = 3.0;
-        this.color = Color.YELLOW;
+        this.color = COLOR;
         this.speed = 0.02; // Base speed
     }
 
     @Override
-    protected Shape getShape() {
-        Path2D triangle = new Path2D.Double();
-        double height = size * Math.sqrt(3);
-        
-        triangle.moveTo(x, y - height/2);
-        triangle.lineTo(x - size, y + height/2);
-        triangle.lineTo(x + size, y + height/2);
-        triangle.closePath();
-        
-        return triangle;
+    protected Shape getUnitShape() {
+        return RenderCache.UNIT_TRIANGLE;
     }
 
-    @Override
-    public void update(double deltaTime) {
-        super.update(deltaTime);
-        // Triangle packets have accelerated movement
+    // Triangle packets have accelerated movement
+    static double boostSpeed(double speed) {
         if (speed > 0.5) {
-            speed = 0.02 * (1 + (speed - 0.5) * 2);
+            return 0.02 * (1 + (speed - 0.5) * 2);
         }
+        return speed;
+    }
+
+    @Override
+    public PortType getType() {
+        return PortType.TRIANGLE;
     }
 
     @Override
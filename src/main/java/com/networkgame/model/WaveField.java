@@ -0,0 +1,134 @@
+package com.networkgame.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The active impact waves bucketed by every grid cell their rings can reach,
+ * rebuilt once per tick, so each packet only checks the waves listed under its
+ * own cell. A wave pushes a packet outwards in the tick its expanding front
+ * sweeps over it, harder near the centre and fading to nothing at full radius.
+ * Only the position is pushed. A packet on a wire is carried on by however far
+ * its point on the wire moves, so it keeps the offset, as after a collision, and
+ * still arrives when that point reaches the far port.
+ */
+class WaveField {
+    // No smaller than the largest ring, so a wave reaches only its own cell and the eight around it
+    private static final double CELL_SIZE = ImpactWave.MAX_RADIUS;
+    // Distance a front passing right at the centre pushes a packet. Waves add no noise;
+    // with noise, dense clusters wiped themselves out in a chain of collisions
+    private static final double WAVE_PUSH = 2.0;
+
+    private int waveCount;
+    private double[] centerX = new double[0];
+    private double[] centerY = new double[0];
+    private double[] innerRadius = new double[0];
+    private double[] outerRadius = new double[0];
+
+    // Nine entries per wave, sorted by bucket as in SpatialHashGrid
+    private int entryCount;
+    private int[] entryCellX = new int[0];
+    private int[] entryCellY = new int[0];
+    private int[] entryWave = new int[0];
+    private int[] entryBucket = new int[0];
+    private int[] bucketEntries = new int[0];
+    private int[] bucketStart = new int[1];
+    private int tableMask;
+
+    void rebuild(List<ImpactWave> waves) {
+        waveCount = waves.size();
+        entryCount = waveCount * 9;
+        ensureCapacity();
+
+        Arrays.fill(bucketStart, 0, tableMask + 2, 0);
+        int entry = 0;
+        for (int w = 0; w < waveCount; w++) {
+            ImpactWave wave = waves.get(w);
+            centerX[w] = wave.getCenterX();
+            centerY[w] = wave.getCenterY();
+            innerRadius[w] = wave.getPreviousRadius();
+            outerRadius[w] = wave.getRadius();
+            int cx = cellOf(centerX[w]);
+            int cy = cellOf(centerY[w]);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int bucket = bucketOf(cx + dx, cy + dy);
+                    entryCellX[entry] = cx + dx;
+                    entryCellY[entry] = cy + dy;
+                    entryWave[entry] = w;
+                    entryBucket[entry] = bucket;
+                    bucketStart[bucket + 1]++;
+                    entry++;
+                }
+            }
+        }
+        for (int b = 0; b <= tableMask; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        for (int e = entryCount - 1; e >= 0; e--) {
+            bucketEntries[--bucketStart[entryBucket[e] + 1]] = e;
+        }
+        for (int b = 0; b <= tableMask; b++) {
+            bucketStart[b] = bucketStart[b + 1];
+        }
+        bucketStart[tableMask + 1] = entryCount;
+    }
+
+    // Pushes packets in slots [from, to); each slot is written only by its own iteration
+    void apply(PacketStore store, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double x = store.x[i];
+            double y = store.y[i];
+            int cx = cellOf(x);
+            int cy = cellOf(y);
+            int bucket = bucketOf(cx, cy);
+            for (int k = bucketStart[bucket], end = bucketStart[bucket + 1]; k < end; k++) {
+                int e = bucketEntries[k];
+                if (entryCellX[e] != cx || entryCellY[e] != cy) continue;
+
+                int w = entryWave[e];
+                double dx = x - centerX[w];
+                double dy = y - centerY[w];
+                double distanceSquared = dx * dx + dy * dy;
+                double inner = innerRadius[w];
+                double outer = outerRadius[w];
+                if (distanceSquared <= inner * inner || distanceSquared > outer * outer) continue;
+
+                double distance = Math.sqrt(distanceSquared);
+                double force = 1 - distance / ImpactWave.MAX_RADIUS;
+                if (force <= 0 || distance == 0) continue;
+                store.x[i] += dx / distance * force * WAVE_PUSH;
+                store.y[i] += dy / distance * force * WAVE_PUSH;
+            }
+        }
+    }
+
+    private static int cellOf(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private int bucketOf(int cx, int cy) {
+        return ((cx * 73856093) ^ (cy * 19349663)) & tableMask;
+    }
+
+    private void ensureCapacity() {
+        if (centerX.length < waveCount) {
+            int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, waveCount - 1)) << 1);
+            centerX = new double[capacity];
+            centerY = new double[capacity];
+            innerRadius = new double[capacity];
+            outerRadius = new double[capacity];
+            entryCellX = new int[capacity * 9];
+            entryCellY = new int[capacity * 9];
+            entryWave = new int[capacity * 9];
+            entryBucket = new int[capacity * 9];
+            bucketEntries = new int[capacity * 9];
+        }
+        // Roughly two buckets per entry so chains stay short
+        int tableSize = Math.max(16, Integer.highestOneBit(Math.max(1, entryCount)) << 1);
+        if (tableMask + 1 < tableSize) {
+            tableMask = tableSize - 1;
+            bucketStart = new int[tableSize + 1];
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.networkgame.ui;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferStrategy;
+
+/**
+ * Active rendering for GamePanel: a dedicated thread advances the simulation
+ * and draws each frame into a Canvas through a BufferStrategy, instead of
+ * waiting on Swing's coalesced repaints. Enabled with
+ * {@code -Dnetworkgame.render=active}; {@code -Dnetworkgame.fps} sets the frame
+ * cap, where {@code vsync} (the default) paces to the display refresh rate and
+ * {@code 0} renders as fast as possible.
+ */
+class ActiveRenderer implements Runnable {
+    private static final int FALLBACK_REFRESH_RATE = 60;
+    // Sleep until this close to the frame deadline, then yield the rest away
+    private static final long SPIN_NANOS = 1_000_000L;
+    // Longest an unchanged frame goes without being presented again
+    private static final long IDLE_PRESENT_NANOS = 250_000_000L;
+
+    private final GamePanel panel;
+    private final Canvas canvas = new Canvas();
+    private final String fps = System.getProperty("networkgame.fps", "vsync");
+    private volatile boolean running;
+    private Thread thread;
+    private GraphicsConfiguration refreshConfig;
+    private int refreshRate;
+    private long lastPresent;
+
+    ActiveRenderer(GamePanel panel) {
+        this.panel = panel;
+        canvas.setIgnoreRepaint(true);
+        canvas.setBackground(panel.getBackground());
+        canvas.setFocusable(true);
+
+        // Input arrives on the EDT while this thread owns the game state, so hand it over under the lock
+        LockedInput input = new LockedInput();
+        canvas.addMouseListener(input);
+        canvas.addMouseMotionListener(input);
+        canvas.addMouseWheelListener(input);
+        canvas.addKeyListener(input);
+    }
+
+    static boolean isEnabled() {
+        return "active".equalsIgnoreCase(System.getProperty("networkgame.render"));
+    }
+
+    Canvas getCanvas() {
+        return canvas;
+    }
+
+    synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "active-renderer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+            thread = null;
+        }
+        if (current != null && current != Thread.currentThread()) {
+            current.interrupt();
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        BufferStrategy strategy = null;
+        long nextFrame = System.nanoTime();
+
+        while (running) {
+            if (!canvas.isDisplayable() || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) {
+                strategy = null;
+                if (!pause(10)) break;
+                nextFrame = System.nanoTime();
+                continue;
+            }
+            if (strategy == null) {
+                canvas.createBufferStrategy(2);
+                strategy = canvas.getBufferStrategy();
+            }
+
+            boolean presented = false;
+            synchronized (panel.frameLock) {
+                long now = System.nanoTime();
+                panel.tick(now);
+                // Keep the last frame while nothing moved and the HUD is unchanged,
+                // presenting now and then in case the window contents were damaged
+                if (panel.frameNeeded() || now - lastPresent >= IDLE_PRESENT_NANOS) {
+                    // Redraw until the frame survives; the back buffer can be lost mid-frame
+                    do {
+                        do {
+                            Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                            try {
+                                g2d.setColor(canvas.getBackground());
+                                g2d.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+                                panel.renderFrame(g2d);
+                            } finally {
+                                g2d.dispose();
+                            }
+                        } while (strategy.contentsRestored());
+                        strategy.show();
+                    } while (strategy.contentsLost());
+                    presented = true;
+                }
+            }
+            if (presented) {
+                Toolkit.getDefaultToolkit().sync();
+                lastPresent = System.nanoTime();
+                panel.framePresented(lastPresent);
+            }
+
+            long frameNanos = frameNanos();
+            if (frameNanos == 0) {
+                Thread.yield();
+                continue;
+            }
+            nextFrame += frameNanos;
+            long now = System.nanoTime();
+            if (now - nextFrame > frameNanos) {
+                // Fell more than a frame behind; drop the debt instead of bursting to catch up
+                nextFrame = now;
+            }
+            if (!waitUntil(nextFrame)) break;
+        }
+    }
+
+    private long frameNanos() {
+        int rate;
+        if ("vsync".equalsIgnoreCase(fps)) {
+            rate = refreshRate();
+        } else {
+            try {
+                rate = Integer.parseInt(fps);
+            } catch (NumberFormatException e) {
+                rate = FALLBACK_REFRESH_RATE;
+            }
+        }
+        return rate <= 0 ? 0 : 1_000_000_000L / rate;
+    }
+
+    // Looked up again when the window moves to another display
+    private int refreshRate() {
+        GraphicsConfiguration gc = canvas.getGraphicsConfiguration();
+        if (gc != refreshConfig) {
+            refreshConfig = gc;
+            refreshRate = gc == null ? DisplayMode.REFRESH_RATE_UNKNOWN : gc.getDevice().getDisplayMode().getRefreshRate();
+            if (refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+                refreshRate = FALLBACK_REFRESH_RATE;
+            }
+        }
+        return refreshRate;
+    }
+
+    private boolean waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                if (!pause((remaining - SPIN_NANOS) / 1_000_000L)) return false;
+            } else {
+                Thread.yield();
+            }
+        }
+        return true;
+    }
+
+    private boolean pause(long millis) {
+        try {
+            Thread.sleep(Math.max(1, millis));
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private class LockedInput implements MouseListener, MouseMotionListener, MouseWheelListener, KeyListener {
+        @Override public void mousePressed(MouseEvent e) { synchronized (panel.frameLock) { panel.mousePressed(e); } }
+        @Override public void mouseReleased(MouseEvent e) { synchronized (panel.frameLock) { panel.mouseReleased(e); } }
+        @Override public void mouseClicked(MouseEvent e) { synchronized (panel.frameLock) { panel.mouseClicked(e); } }
+        @Override public void mouseEntered(MouseEvent e) { synchronized (panel.frameLock) { panel.mouseEntered(e); } }
+        @Override public void mouseExited(MouseEvent e) { synchronized (panel.frameLock) { panel.mouseExited(e); } }
+        @Override public void mouseDragged(MouseEvent e) { synchronized (panel.frameLock) { panel.mouseDragged(e); } }
+        @Override public void mouseMoved(MouseEvent e) { synchronized (panel.frameLock) { panel.mouseMoved(e); } }
+        @Override public void mouseWheelMoved(MouseWheelEvent e) { synchronized (panel.frameLock) { panel.mouseWheelMoved(e); } }
+        @Override public void keyPressed(KeyEvent e) { synchronized (panel.frameLock) { panel.keyPressed(e); } }
+        @Override public void keyReleased(KeyEvent e) { synchronized (panel.frameLock) { panel.keyReleased(e); } }
+        @Override public void keyTyped(KeyEvent e) { synchronized (panel.frameLock) { panel.keyTyped(e); } }
+    }
+}
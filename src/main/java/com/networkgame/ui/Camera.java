@@ -0,0 +1,95 @@
+package com.networkgame.ui;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Pan and zoom over the model: a uniform scale followed by a translation,
+ * mapping model coordinates to panel pixels. The version moves on every
+ * change so cached drawings made through the camera know when to redraw.
+ */
+class Camera {
+    static final double MIN_ZOOM = 0.05;
+    static final double MAX_ZOOM = 8;
+
+    private double zoom = 1;
+    private double offsetX;
+    private double offsetY;
+    private int version;
+    private final AffineTransform transform = new AffineTransform();
+    private final Rectangle2D.Double visible = new Rectangle2D.Double();
+
+    double getZoom() {
+        return zoom;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    boolean isIdentity() {
+        return zoom == 1 && offsetX == 0 && offsetY == 0;
+    }
+
+    // Shared instance, valid until the camera next moves
+    AffineTransform getTransform() {
+        return transform;
+    }
+
+    void pan(double dx, double dy) {
+        if (dx == 0 && dy == 0) return;
+        offsetX += dx;
+        offsetY += dy;
+        changed();
+    }
+
+    // Scales by factor while keeping the model point under (screenX, screenY) in place
+    void zoomAt(double screenX, double screenY, double factor) {
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        if (newZoom == zoom) return;
+        double modelX = toModelX(screenX);
+        double modelY = toModelY(screenY);
+        zoom = newZoom;
+        offsetX = screenX - modelX * zoom;
+        offsetY = screenY - modelY * zoom;
+        changed();
+    }
+
+    void reset() {
+        if (isIdentity()) return;
+        zoom = 1;
+        offsetX = 0;
+        offsetY = 0;
+        changed();
+    }
+
+    double toModelX(double screenX) {
+        return (screenX - offsetX) / zoom;
+    }
+
+    double toModelY(double screenY) {
+        return (screenY - offsetY) / zoom;
+    }
+
+    double toScreenX(double modelX) {
+        return modelX * zoom + offsetX;
+    }
+
+    double toScreenY(double modelY) {
+        return modelY * zoom + offsetY;
+    }
+
+    // The part of the model shown in a panel of the given size, grown by margin model units.
+    // Shared instance, valid until the next call
+    Rectangle2D visibleArea(int width, int height, double margin) {
+        visible.setRect(
+            toModelX(0) - margin, toModelY(0) - margin,
+            width / zoom + 2 * margin, height / zoom + 2 * margin);
+        return visible;
+    }
+
+    private void changed() {
+        transform.setTransform(zoom, 0, 0, zoom, offsetX, offsetY);
+        version++;
+    }
+}
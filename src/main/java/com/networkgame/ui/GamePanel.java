@@ -2,13 +2,33 @@ package com.networkgame.ui;
 
 import com.networkgame.model.*;
 import com.networkgame.controller.GameController;
+import com.networkgame.controller.SimulationEngine;
+import com.networkgame.util.Counter;
+import com.networkgame.util.Gauge;
+import com.networkgame.util.IoExecutor;
+import com.networkgame.util.LatencyHistogram;
+import com.networkgame.util.MetricsRegistry;
+import com.networkgame.util.RenderCache;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.awt.geom.Point2D;
-
-public class GamePanel extends JPanel implements MouseListener, MouseMotionListener, KeyListener {
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class GamePanel extends JPanel implements MouseListener, MouseMotionListener, MouseWheelListener, KeyListener {
     private GameState gameState;
+    private SimulationEngine engine;
     private Port selectedPort;
     private boolean isWiring;
     private Timer gameTimer;
@@ -19,29 +39,103 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
     private GameController controller;
     private boolean[] activeEffects = new boolean[3]; // Atar, Airyaman, Anahita
     private long[] effectEndTimes = new long[3];
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final LatencyHistogram paintTime = metrics.histogram("paint");
+    private final LatencyHistogram paintStaticTime = metrics.histogram("paint.static");
+    private final Counter staticLayerRebuilds = metrics.counter("paint.staticRebuilds");
+    private final LatencyHistogram paintPacketsTime = metrics.histogram("paint.packets");
+    private final LatencyHistogram paintHudTime = metrics.histogram("paint.hud");
+    private final Gauge allocationRate = metrics.gauge("alloc.bytesPerSecond");
+    private final LatencyHistogram frameInterval = metrics.histogram("frame.interval");
+    private long lastFrameTime;
+    private boolean showMetrics;
+    private long lastAllocationSample;
+    private long lastAllocatedBytes = -1;
+    private static final Font METRICS_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    // Wires, systems and ports, redrawn only when the state's topology version moves
+    private Image staticLayer;
+    private GameState staticLayerState;
+    private int staticLayerVersion;
+    private static final long REWIND_BUDGET =
+        Long.getLong("networkgame.rewind.budget", RewindBuffer.DEFAULT_BUDGET_BYTES);
+    private static final boolean PARALLEL_PHYSICS =
+        !"false".equalsIgnoreCase(System.getProperty("networkgame.parallel"));
+    private static final int PARALLEL_THRESHOLD =
+        Integer.getInteger("networkgame.parallelThreshold", GameState.DEFAULT_PARALLEL_THRESHOLD);
+    // Held by the render thread for a frame and by input handlers that touch the game state
+    final Object frameLock = new Object();
+    private ActiveRenderer activeRenderer;
+    private Point mousePoint;
+    private static final double PORT_PICK_RADIUS = 10;
+    private static final double WIRE_PICK_DISTANCE = 5;
+    private final PacketRenderer packetRenderer = new PacketRenderer(
+        Integer.getInteger("networkgame.lowDetailThreshold", PacketRenderer.DEFAULT_LOW_DETAIL_THRESHOLD));
+    // Change tracking, so an idle or paused game repaints only what changed, or nothing
+    private static final Font HUD_FONT = RenderCache.font("Arial", Font.BOLD, 14);
+    private static final int HUD_X = 10;
+    private static final int HUD_BASELINE = 20;
+    private static final int HUD_LINE_HEIGHT = 20;
+    private final TextImage hudText = new TextImage(HUD_FONT, Color.BLACK, HUD_LINE_HEIGHT);
+    private final TextImage gameOverTitle = new TextImage(RenderCache.font("Arial", Font.BOLD, 48), Color.WHITE, 48);
+    private final TextImage gameOverStats = new TextImage(RenderCache.font("Arial", Font.BOLD, 24), Color.WHITE, 24);
+    private int shownSuccessRate = -1;
+    private TextImage[] storedLabels = new TextImage[0];
+    private int[] shownStoredCounts = new int[0];
+    private GameState hudTextState;
+    private int hudTextVersion;
+    // Area of changed HUD and label text, reused from frame to frame
+    private final Rectangle hudDirty = new Rectangle();
+    private GameState paintedState;
+    private boolean paintedGameOver;
+    private boolean sceneDirty = true;
+    // Pan and zoom over the model; drawing is culled to what the camera shows
+    private final Camera camera = new Camera();
+    private int staticLayerCamera;
+    private Point panAnchor;
+    private final List<NetworkSystem> visibleSystems = new ArrayList<>();
+    private final List<Connection> visibleConnections = new ArrayList<>();
+    private static final double ZOOM_STEP = 1.1;
+    // Below this zoom port glyphs and stored-packet labels are left off
+    private static final double DETAIL_ZOOM = 0.5;
+    // Model units beyond the screen edge still drawn, for port glyphs and indicators
+    private static final double CULL_MARGIN = 25;
 
     public GamePanel(GameController controller) {
         this.controller = controller;
         this.gameState = new GameState();
+        this.engine = new SimulationEngine(gameState);
+        gameState.setMetrics(metrics);
         setPreferredSize(new Dimension(800, 600));
         setBackground(Color.WHITE);
-        addMouseListener(this);
-        addMouseMotionListener(this);
-        addKeyListener(this);
         setFocusable(true);
 
-        // Initialize game timer
+        // Initialize game timer; the engine steps the simulation, this only paces repaints
         lastUpdateTime = System.nanoTime();
         gameTimer = new Timer(1000 / FPS, e -> {
-            long currentTime = System.nanoTime();
-            double deltaTime = (currentTime - lastUpdateTime) / 1_000_000_000.0;
-            lastUpdateTime = currentTime;
-            
-            updateEffects(currentTime);
-            gameState.update(deltaTime);
-            repaint();
+            tick(System.nanoTime());
+            repaintChanged();
         });
-        gameTimer.start();
+        if (ActiveRenderer.isEnabled()) {
+            // Draws into a Canvas from its own thread instead of through Swing repaints
+            activeRenderer = new ActiveRenderer(this);
+            Canvas canvas = activeRenderer.getCanvas();
+            setLayout(new BorderLayout());
+            add(canvas, BorderLayout.CENTER);
+            // The canvas takes the input; focus handed to the panel goes straight on to it
+            addFocusListener(new FocusAdapter() {
+                @Override
+                public void focusGained(FocusEvent e) {
+                    canvas.requestFocusInWindow();
+                }
+            });
+            activeRenderer.start();
+        } else {
+            addMouseListener(this);
+            addMouseMotionListener(this);
+            addMouseWheelListener(this);
+            addKeyListener(this);
+            gameTimer.start();
+        }
 
         // Initialize some test systems
         initializeTestSystems();
@@ -62,51 +156,212 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
         gameState.addSystem(targetSystem);
     }
 
+    public void setGameState(GameState gameState) {
+        synchronized (frameLock) {
+            this.gameState = gameState;
+            this.engine = new SimulationEngine(gameState);
+            gameState.setMetrics(metrics);
+            gameState.setRewindBuffer(new RewindBuffer(engine.getTimeStep(), REWIND_BUDGET));
+            gameState.setImpactWavesEnabled(!activeEffects[0]);
+            if (PARALLEL_PHYSICS) {
+                gameState.setParallelPhysics(ForkJoinPool.commonPool(), PARALLEL_THRESHOLD);
+            }
+            lastUpdateTime = System.nanoTime();
+        }
+        repaint();
+    }
+
+    public void stopGameLoop() {
+        gameTimer.stop();
+        if (activeRenderer != null) {
+            activeRenderer.stop();
+        }
+    }
+
+    // Advances effects and the simulation by the real time since the last call
+    void tick(long currentTime) {
+        double deltaTime = (currentTime - lastUpdateTime) / 1_000_000_000.0;
+        lastUpdateTime = currentTime;
+
+        updateEffects(currentTime);
+        int steps = engine.advance(deltaTime);
+        if (steps > 0 && !(gameState.getActivePackets().isEmpty() && gameState.getActiveImpactWaves().isEmpty())) {
+            sceneDirty = true;
+        }
+        if (controller != null) {
+            controller.gameTicked(gameState, currentTime);
+        }
+        sampleAllocationRate(currentTime);
+    }
+
+    // Anything beyond the HUD text that needs a whole new frame
+    private boolean sceneChanged() {
+        return sceneDirty || showMetrics || isWiring || paintedState != gameState
+            || paintedGameOver != gameState.isGameOver()
+            || staticLayerState != gameState || staticLayerVersion != gameState.getTopologyVersion()
+            || staticLayerCamera != camera.getVersion();
+    }
+
+    // Whether the active renderer has anything new to show; clears the scene flag
+    boolean frameNeeded() {
+        boolean needed = sceneChanged() || hudTextState != gameState || hudTextVersion != gameState.getHudVersion();
+        sceneDirty = false;
+        return needed;
+    }
+
+    private void repaintChanged() {
+        if (sceneChanged()) {
+            sceneDirty = false;
+            repaint();
+            return;
+        }
+        Rectangle dirty = refreshHudText();
+        if (dirty != null) {
+            repaint(dirty);
+        }
+    }
+
+    // Rebuilds HUD and stored-packet text after the state's HUD version moved.
+    // Returns the area covering old and new text, or null when nothing changed;
+    // the rectangle is reused by the next call.
+    private Rectangle refreshHudText() {
+        if (hudTextState == gameState && hudTextVersion == gameState.getHudVersion()) return null;
+        hudTextState = gameState;
+        hudTextVersion = gameState.getHudVersion();
+
+        Rectangle dirty = hudDirty;
+        dirty.setBounds(HUD_X, HUD_BASELINE, 0, 0);
+        hudText.addBounds(dirty, HUD_X, HUD_BASELINE);
+        hudText.set(
+            "Wire Length: " + (int)gameState.getRemainingWireLength(),
+            "Time Remaining: " + (int)gameState.getRemainingTime() + "s",
+            "Temporal Progress: " + (int)(gameState.getTemporalProgress() * 100) + "%",
+            "Packet Loss: " + gameState.getPacketLoss() + "%",
+            "Coins: " + gameState.getCoins(),
+            "Success Rate: " + calculateSuccessRate() + "%");
+        hudText.addBounds(dirty, HUD_X, HUD_BASELINE);
+
+        List<NetworkSystem> systems = gameState.getSystems();
+        if (shownStoredCounts.length != systems.size()) {
+            shownStoredCounts = new int[systems.size()];
+            dirty.add(0, 0);
+            dirty.add(getWidth(), getHeight());
+        }
+        for (int i = 0; i < systems.size(); i++) {
+            int count = systems.get(i).getStoredPackets().size();
+            if (count != shownStoredCounts[i]) {
+                addStoredLabelBounds(dirty, systems.get(i), shownStoredCounts[i]);
+                addStoredLabelBounds(dirty, systems.get(i), count);
+                shownStoredCounts[i] = count;
+            }
+        }
+        return dirty;
+    }
+
+    void framePresented(long currentTime) {
+        if (lastFrameTime != 0) {
+            frameInterval.recordSince(lastFrameTime);
+        }
+        lastFrameTime = currentTime;
+    }
+
+    // Bytes allocated per second by the thread driving the game, sampled once a second
+    private void sampleAllocationRate(long currentTime) {
+        if (currentTime - lastAllocationSample < 1_000_000_000L) return;
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) return;
+
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        if (lastAllocatedBytes >= 0 && allocated >= 0) {
+            double seconds = (currentTime - lastAllocationSample) / 1_000_000_000.0;
+            allocationRate.set((allocated - lastAllocatedBytes) / seconds);
+        }
+        lastAllocatedBytes = allocated;
+        lastAllocationSample = currentTime;
+    }
+
     private void updateEffects(long currentTime) {
         for (int i = 0; i < activeEffects.length; i++) {
             if (activeEffects[i] && currentTime > effectEndTimes[i]) {
                 activeEffects[i] = false;
+                sceneDirty = true;
+                if (i == 0) {
+                    gameState.setImpactWavesEnabled(true);
+                }
+            }
+        }
+    }
+
+    // Seconds each shop effect has left, zero for those not active
+    public double[] getEffectSecondsLeft(long currentTime) {
+        double[] secondsLeft = new double[activeEffects.length];
+        for (int i = 0; i < activeEffects.length; i++) {
+            if (activeEffects[i]) {
+                secondsLeft[i] = Math.max(0, (effectEndTimes[i] - currentTime) / 1_000_000_000.0);
+            }
+        }
+        return secondsLeft;
+    }
+
+    public void restoreEffects(double[] secondsLeft) {
+        synchronized (frameLock) {
+            long currentTime = System.nanoTime();
+            for (int i = 0; i < activeEffects.length; i++) {
+                activeEffects[i] = i < secondsLeft.length && secondsLeft[i] > 0;
+                effectEndTimes[i] = activeEffects[i] ? currentTime + (long) (secondsLeft[i] * 1_000_000_000L) : 0;
             }
+            gameState.setImpactWavesEnabled(!activeEffects[0]);
+            sceneDirty = true;
         }
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
+        if (activeRenderer != null) return;
+
+        renderFrame((Graphics2D) g);
+        framePresented(System.nanoTime());
+    }
+
+    void renderFrame(Graphics2D g2d) {
+        long paintStart = System.nanoTime();
         
         // Enable anti-aliasing
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        // Draw connections
-        for (Connection connection : gameState.getConnections()) {
-            connection.draw(g2d);
-        }
+        refreshHudText();
+        paintedState = gameState;
+        paintedGameOver = gameState.isGameOver();
 
-        // Draw systems
-        for (NetworkSystem system : gameState.getSystems()) {
-            system.draw(g2d);
-            drawSystemIndicator(g2d, system);
-            drawStoredPackets(g2d, system);
+        // Draw connections and systems from the cached layer
+        drawStaticLayer(g2d);
+        if (camera.getZoom() >= DETAIL_ZOOM) {
+            for (NetworkSystem system : visibleSystems) {
+                drawStoredPackets(g2d, system);
+            }
         }
+        long mark = paintStaticTime.recordSince(paintStart);
 
-        // Draw packets
-        for (Packet packet : gameState.getActivePackets()) {
-            packet.draw(g2d);
-        }
+        // Draw packets between the last two simulation steps
+        packetRenderer.draw(g2d, gameState, engine.getInterpolationAlpha(), getWidth(), getHeight(),
+            camera.getTransform());
+        drawImpactWaves(g2d);
+        mark = paintPacketsTime.recordSince(mark);
 
         // Draw HUD
         drawHUD(g2d);
+        paintHudTime.recordSince(mark);
 
         // Draw wiring preview
         if (isWiring && selectedPort != null) {
-            Point mousePoint = getMousePosition();
             if (mousePoint != null) {
                 g2d.setColor(Color.BLUE);
-                g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{9}, 0));
+                g2d.setStroke(RenderCache.dashedStroke(2, 9));
                 g2d.drawLine(
-                    (int) selectedPort.getX(),
-                    (int) selectedPort.getY(),
+                    (int) camera.toScreenX(selectedPort.getX()),
+                    (int) camera.toScreenY(selectedPort.getY()),
                     mousePoint.x,
                     mousePoint.y
                 );
@@ -120,31 +375,204 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
         if (gameState.isGameOver()) {
             drawGameOver(g2d);
         }
+        paintTime.recordSince(paintStart);
+
+        if (showMetrics) {
+            drawMetricsOverlay(g2d);
+        }
+    }
+
+    private void drawStaticLayer(Graphics2D g2d) {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) return;
+
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        boolean stale = staticLayerState != gameState || staticLayerVersion != gameState.getTopologyVersion()
+            || staticLayerCamera != camera.getVersion();
+        if (staticLayer == null || staticLayer.getWidth(null) != width || staticLayer.getHeight(null) != height) {
+            staticLayer = createStaticLayer(gc, width, height);
+            stale = true;
+        } else if (staticLayer instanceof VolatileImage) {
+            // Video memory can be lost at any time, e.g. on a display mode change
+            int status = ((VolatileImage) staticLayer).validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                staticLayer = createStaticLayer(gc, width, height);
+            }
+            stale |= status != VolatileImage.IMAGE_OK;
+        }
+
+        if (stale) {
+            Graphics2D layer = (Graphics2D) staticLayer.getGraphics();
+            try {
+                renderStaticLayer(layer, width, height);
+            } finally {
+                layer.dispose();
+            }
+            staticLayerState = gameState;
+            staticLayerVersion = gameState.getTopologyVersion();
+            staticLayerCamera = camera.getVersion();
+            staticLayerRebuilds.increment();
+        }
+
+        g2d.drawImage(staticLayer, 0, 0, null);
+        if (staticLayer instanceof VolatileImage && ((VolatileImage) staticLayer).contentsLost()) {
+            staticLayerState = null;
+        }
+    }
+
+    private static Image createStaticLayer(GraphicsConfiguration gc, int width, int height) {
+        if (gc != null) {
+            return gc.createCompatibleVolatileImage(width, height, Transparency.OPAQUE);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private void renderStaticLayer(Graphics2D g2d, int width, int height) {
+        g2d.setColor(getBackground());
+        g2d.fillRect(0, 0, width, height);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, camera.getZoom() >= DETAIL_ZOOM
+            ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        g2d.transform(camera.getTransform());
+
+        // Only what the spatial index finds on screen is drawn, so cost follows the view, not the model
+        Rectangle2D visible = camera.visibleArea(width, height, CULL_MARGIN);
+        visibleConnections.clear();
+        gameState.findConnectionsIn(visible, visibleConnections);
+        visibleSystems.clear();
+        gameState.findSystemsIn(visible, visibleSystems);
+
+        boolean drawPorts = camera.getZoom() >= DETAIL_ZOOM;
+        for (Connection connection : visibleConnections) {
+            connection.draw(g2d);
+        }
+        for (NetworkSystem system : visibleSystems) {
+            system.draw(g2d, drawPorts);
+            drawSystemIndicator(g2d, system);
+        }
+    }
+
+    // Rings are placed through the camera; those wholly off screen are skipped
+    private void drawImpactWaves(Graphics2D g2d) {
+        List<ImpactWave> waves = gameState.getActiveImpactWaves();
+        if (waves.isEmpty()) return;
+
+        Rectangle2D visible = camera.visibleArea(getWidth(), getHeight(), 0);
+        double zoom = camera.getZoom();
+        double offsetX = camera.toScreenX(0);
+        double offsetY = camera.toScreenY(0);
+        for (int i = 0; i < waves.size(); i++) {
+            ImpactWave wave = waves.get(i);
+            double radius = wave.getRadius();
+            if (visible.intersects(wave.getCenterX() - radius, wave.getCenterY() - radius, radius * 2, radius * 2)) {
+                wave.draw(g2d, zoom, offsetX, offsetY);
+            }
+        }
+    }
+
+    private void drawMetricsOverlay(Graphics2D g2d) {
+        String[] lines = {
+            metricLine("tick", metrics.histogram("tick")),
+            metricLine(" waves", metrics.histogram("tick.waves")),
+            metricLine(" systems", metrics.histogram("tick.systems")),
+            metricLine(" packets", metrics.histogram("tick.packets")),
+            metricLine(" collide", metrics.histogram("tick.collisions")),
+            metricLine("paint", paintTime),
+            metricLine(" static", paintStaticTime),
+            metricLine(" packets", paintPacketsTime),
+            metricLine(" hud", paintHudTime),
+            metricLine("frame", frameInterval),
+            String.format("packets %6d  waves %5d",
+                (long) metrics.gauge("packets.active").getValue(), (long) metrics.gauge("waves.active").getValue()),
+            String.format("alloc %8.2f MB/s  layer rebuilds %d",
+                allocationRate.getValue() / (1024 * 1024), staticLayerRebuilds.getCount()),
+            "F3 hide  F4 export"
+        };
+
+        g2d.setFont(METRICS_FONT);
+        FontMetrics fm = g2d.getFontMetrics();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, fm.stringWidth(line));
+        }
+        int x = getWidth() - width - 20;
+        int y = 10;
+        g2d.setColor(RenderCache.color(0, 0, 0, 170));
+        g2d.fillRect(x - 8, y, width + 16, lines.length * fm.getHeight() + 10);
+        g2d.setColor(Color.GREEN);
+        for (String line : lines) {
+            y += fm.getHeight();
+            g2d.drawString(line, x, y);
+        }
+    }
+
+    private static String metricLine(String label, LatencyHistogram histogram) {
+        return String.format("%-9s p50 %7.3f  p99 %7.3f ms", label,
+            histogram.getPercentile(50) / 1e6, histogram.getPercentile(99) / 1e6);
+    }
+
+    // Formats the metrics as they are now and writes them out on the I/O executor
+    private void exportMetrics() {
+        String stamp = "metrics-" + System.currentTimeMillis();
+        Path json = Paths.get(stamp + ".json");
+        Path csv = Paths.get(stamp + ".csv");
+        String jsonText = metrics.toJson();
+        String csvText = metrics.toCsv();
+        IoExecutor.get().execute(() -> {
+            try {
+                Files.write(json, jsonText.getBytes(StandardCharsets.UTF_8));
+                Files.write(csv, csvText.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.err.println("Error exporting metrics: " + e.getMessage());
+            }
+        });
     }
 
     private void drawSystemIndicator(Graphics2D g2d, NetworkSystem system) {
         if (system.isReferenceSystem()) {
             g2d.setColor(Color.GREEN);
             g2d.fillOval(
-                (int)system.getBounds().getX() + system.getBounds().width - 20,
+                (int)(system.getBounds().getX() + system.getBounds().getWidth()) - 20,
                 (int)system.getBounds().getY() - 20,
                 20, 20
             );
         }
     }
 
+    // Labels stay at text size whatever the zoom, above the system's top left corner
     private void drawStoredPackets(Graphics2D g2d, NetworkSystem system) {
         int storedCount = system.getStoredPackets().size();
         if (storedCount > 0) {
-            g2d.setColor(Color.BLACK);
-            g2d.setFont(new Font("Arial", Font.BOLD, 14));
-            g2d.drawString("Stored: " + storedCount, 
-                (int)system.getBounds().getX(),
-                (int)system.getBounds().getY() - 5);
+            int x = (int) camera.toScreenX(system.getBounds().getX());
+            int y = (int) camera.toScreenY(system.getBounds().getY());
+            storedLabel(storedCount).draw(g2d, x, y - 5);
+        }
+    }
+
+    // One cached image per count; systems hold only a few packets
+    private TextImage storedLabel(int count) {
+        if (count >= storedLabels.length) {
+            storedLabels = Arrays.copyOf(storedLabels, count + 1);
+        }
+        if (storedLabels[count] == null) {
+            storedLabels[count] = new TextImage(HUD_FONT, Color.BLACK, HUD_LINE_HEIGHT);
+            storedLabels[count].set("Stored: " + count);
+        }
+        return storedLabels[count];
+    }
+
+    private void addStoredLabelBounds(Rectangle area, NetworkSystem system, int count) {
+        int x = (int) camera.toScreenX(system.getBounds().getX());
+        int y = (int) camera.toScreenY(system.getBounds().getY()) - 5;
+        if (count > 0) {
+            storedLabel(count).addBounds(area, x, y);
+        } else {
+            area.add(x, y);
         }
     }
 
     private void drawActiveEffects(Graphics2D g2d) {
+        g2d.setFont(HUD_FONT);
         int y = 100;
         if (activeEffects[0]) { // Atar
             g2d.setColor(Color.RED);
@@ -161,36 +589,25 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
     }
 
     private void drawHUD(Graphics2D g2d) {
-        g2d.setColor(Color.BLACK);
-        g2d.setFont(new Font("Arial", Font.BOLD, 14));
-        
-        int y = 20;
-        g2d.drawString("Wire Length: " + (int)gameState.getRemainingWireLength(), 10, y);
-        g2d.drawString("Time Remaining: " + (int)gameState.getRemainingTime() + "s", 10, y += 20);
-        g2d.drawString("Temporal Progress: " + (int)(gameState.getTemporalProgress() * 100) + "%", 10, y += 20);
-        g2d.drawString("Packet Loss: " + gameState.getPacketLoss() + "%", 10, y += 20);
-        g2d.drawString("Coins: " + gameState.getCoins(), 10, y += 20);
-        g2d.drawString("Success Rate: " + calculateSuccessRate() + "%", 10, y += 20);
+        hudText.draw(g2d, HUD_X, HUD_BASELINE);
     }
 
     private void drawGameOver(Graphics2D g2d) {
         // Semi-transparent overlay
-        g2d.setColor(new Color(0, 0, 0, 128));
+        g2d.setColor(RenderCache.color(0, 0, 0, 128));
         g2d.fillRect(0, 0, getWidth(), getHeight());
 
-        // Game over text
-        g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.BOLD, 48));
-        String gameOver = "Game Over";
-        FontMetrics fm = g2d.getFontMetrics();
-        int x = (getWidth() - fm.stringWidth(gameOver)) / 2;
-        g2d.drawString(gameOver, x, getHeight() / 2);
-
-        // Statistics
-        g2d.setFont(new Font("Arial", Font.BOLD, 24));
-        String stats = String.format("Success Rate: %d%%", calculateSuccessRate());
-        x = (getWidth() - fm.stringWidth(stats)) / 2;
-        g2d.drawString(stats, x, getHeight() / 2 + 40);
+        // Game over text and statistics, redrawn into their images only when they change
+        if (gameOverTitle.getWidth() == 0) {
+            gameOverTitle.set("Game Over");
+        }
+        int successRate = calculateSuccessRate();
+        if (successRate != shownSuccessRate) {
+            shownSuccessRate = successRate;
+            gameOverStats.set(String.format("Success Rate: %d%%", successRate));
+        }
+        gameOverTitle.draw(g2d, (getWidth() - gameOverTitle.getWidth()) / 2, getHeight() / 2);
+        gameOverStats.draw(g2d, (getWidth() - gameOverStats.getWidth()) / 2, getHeight() / 2 + 40);
     }
 
     private int calculateSuccessRate() {
@@ -203,13 +620,16 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
         switch (e.getKeyCode()) {
             case KeyEvent.VK_LEFT:
                 gameState.setTemporalProgress(Math.max(0, gameState.getTemporalProgress() - 0.1));
+                sceneDirty = true;
                 break;
             case KeyEvent.VK_RIGHT:
                 gameState.setTemporalProgress(Math.min(1, gameState.getTemporalProgress() + 0.1));
+                sceneDirty = true;
                 break;
             case KeyEvent.VK_S:
                 if (!isShopOpen) {
-                    openShop();
+                    // The shop is modal; open it once this handler has let go of the frame lock
+                    SwingUtilities.invokeLater(this::openShop);
                 }
                 break;
             case KeyEvent.VK_ESCAPE:
@@ -217,12 +637,27 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
                     closeShop();
                 }
                 break;
+            case KeyEvent.VK_F3:
+                showMetrics = !showMetrics;
+                repaint();
+                break;
+            case KeyEvent.VK_F4:
+                exportMetrics();
+                break;
+            case KeyEvent.VK_HOME:
+                camera.reset();
+                break;
         }
     }
 
+    // Runs from invokeLater, outside the input lock. Pausing takes the frame lock like
+    // any other change to the state; the modal dialog is shown after letting go of it.
     private void openShop() {
-        isShopOpen = true;
-        gameState.setPaused(true);
+        synchronized (frameLock) {
+            if (isShopOpen) return;
+            isShopOpen = true;
+            gameState.setPaused(true);
+        }
         
         shopDialog = new JDialog((Frame)SwingUtilities.getWindowAncestor(this), "Shop", true);
         shopDialog.setLayout(new GridLayout(3, 1, 10, 10));
@@ -241,11 +676,13 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
         JPanel itemPanel = new JPanel(new BorderLayout());
         JButton buyButton = new JButton("Buy (" + cost + " coins)");
         buyButton.addActionListener(e -> {
-            if (gameState.getCoins() >= cost) {
-                gameState.addCoins(-cost);
-                // Apply effect based on item
-                applyShopEffect(name);
-                closeShop();
+            synchronized (frameLock) {
+                if (gameState.getCoins() >= cost) {
+                    gameState.addCoins(-cost);
+                    // Apply effect based on item
+                    applyShopEffect(name);
+                    closeShop();
+                }
             }
         });
         
@@ -261,10 +698,12 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
 
     private void applyShopEffect(String itemName) {
         long currentTime = System.nanoTime();
+        sceneDirty = true;
         switch (itemName) {
             case "Atar (3 coins)":
                 activeEffects[0] = true;
                 effectEndTimes[0] = currentTime + 10_000_000_000L; // 10 seconds
+                gameState.setImpactWavesEnabled(false);
                 controller.playSound("atar");
                 break;
             case "Airyaman (4 coins)":
@@ -293,39 +732,39 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
 
     // Existing mouse event handlers...
     @Override public void mousePressed(MouseEvent e) {
-        if (e.getButton() == MouseEvent.BUTTON1) {
+        if (e.getButton() == MouseEvent.BUTTON2) {
+            // Middle drag pans the camera
+            panAnchor = e.getPoint();
+        } else if (e.getButton() == MouseEvent.BUTTON1) {
             // Check if clicked on a port
-            for (NetworkSystem system : gameState.getSystems()) {
-                for (Port port : system.getOutputPorts()) {
-                    if (isPointNearPort(e.getPoint(), port)) {
-                        selectedPort = port;
-                        isWiring = true;
-                        return;
-                    }
-                }
+            Port port = gameState.findPortAt(
+                camera.toModelX(e.getX()), camera.toModelY(e.getY()), PORT_PICK_RADIUS / camera.getZoom(), false);
+            if (port != null) {
+                selectedPort = port;
+                isWiring = true;
             }
         } else if (e.getButton() == MouseEvent.BUTTON3) {
             // Right click to remove connection
-            for (Connection connection : gameState.getConnections()) {
-                if (isPointNearLine(e.getPoint(), connection.getLine())) {
-                    gameState.removeConnection(connection);
-                    repaint();
-                    return;
-                }
+            Connection connection = gameState.findConnectionAt(
+                camera.toModelX(e.getX()), camera.toModelY(e.getY()), WIRE_PICK_DISTANCE / camera.getZoom());
+            if (connection != null) {
+                gameState.removeConnection(connection);
+                repaint();
             }
         }
     }
 
     @Override public void mouseReleased(MouseEvent e) {
+        if (e.getButton() == MouseEvent.BUTTON2) {
+            panAnchor = null;
+            return;
+        }
         if (isWiring && selectedPort != null) {
             // Check if released on an input port
-            for (NetworkSystem system : gameState.getSystems()) {
-                for (Port port : system.getInputPorts()) {
-                    if (isPointNearPort(e.getPoint(), port)) {
-                        gameState.addConnection(selectedPort, port);
-                        break;
-                    }
-                }
+            Port port = gameState.findPortAt(
+                camera.toModelX(e.getX()), camera.toModelY(e.getY()), PORT_PICK_RADIUS / camera.getZoom(), true);
+            if (port != null) {
+                gameState.addConnection(selectedPort, port);
             }
         }
         isWiring = false;
@@ -333,21 +772,22 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
         repaint();
     }
 
-    private boolean isPointNearPort(Point point, Port port) {
-        return point.distance(port.getX(), port.getY()) < 10;
-    }
-
-    private boolean isPointNearLine(Point point, Line2D line) {
-        double distance = line.ptLineDist(point.getX(), point.getY());
-        return distance < 5; // 5 pixels threshold
-    }
-
     // Required interface methods
     @Override public void mouseClicked(MouseEvent e) {}
     @Override public void mouseEntered(MouseEvent e) {}
     @Override public void mouseExited(MouseEvent e) {}
-    @Override public void mouseDragged(MouseEvent e) {}
-    @Override public void mouseMoved(MouseEvent e) {}
+    @Override public void mouseDragged(MouseEvent e) {
+        if (panAnchor != null) {
+            camera.pan(e.getX() - panAnchor.x, e.getY() - panAnchor.y);
+            panAnchor = e.getPoint();
+        }
+        mousePoint = e.getPoint();
+    }
+    @Override public void mouseMoved(MouseEvent e) { mousePoint = e.getPoint(); }
+    // The wheel zooms about the pointer
+    @Override public void mouseWheelMoved(MouseWheelEvent e) {
+        camera.zoomAt(e.getX(), e.getY(), Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()));
+    }
     @Override public void keyTyped(KeyEvent e) {}
     @Override public void keyReleased(KeyEvent e) {}
 } 
\ No newline at end of file
@@ -6,7 +6,6 @@ import java.awt.*;
 
 public class LevelSelectPanel extends JPanel {
     private GameController controller;
-    private static final int MAX_LEVELS = 2;
 
     public LevelSelectPanel(GameController controller) {
         this.controller = controller;
@@ -26,15 +25,20 @@ public class LevelSelectPanel extends JPanel {
         titleLabel.setFont(new Font("Arial", Font.BOLD, 36));
         add(titleLabel, gbc);
 
-        // Level buttons
-        for (int i = 1; i <= MAX_LEVELS; i++) {
+        // Level buttons, scrollable once there are more than fit on screen
+        JPanel levelsPanel = new JPanel(new GridLayout(0, 5, 10, 10));
+        for (int i = 1; i <= controller.getLevelCount(); i++) {
             final int level = i;
             JButton levelButton = new JButton("Level " + i);
             levelButton.addActionListener(e -> {
-                controller.startGame();
+                controller.startLevel(level);
             });
-            add(levelButton, gbc);
+            levelsPanel.add(levelButton);
         }
+        JScrollPane levelsScroll = new JScrollPane(levelsPanel);
+        levelsScroll.setPreferredSize(new Dimension(500, 300));
+        levelsScroll.setBorder(null);
+        add(levelsScroll, gbc);
 
         // Back button
         JButton backButton = new JButton("Back to Menu");
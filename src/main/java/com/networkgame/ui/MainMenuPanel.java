@@ -26,18 +26,21 @@ public class MainMenuPanel extends JPanel {
         add(titleLabel, gbc);
 
         // Buttons
+        JButton continueButton = new JButton("Continue");
         JButton startButton = new JButton("Start Game");
         JButton levelsButton = new JButton("Levels");
         JButton settingsButton = new JButton("Settings");
         JButton exitButton = new JButton("Exit");
 
         // Add action listeners
+        continueButton.addActionListener(e -> controller.continueGame());
         startButton.addActionListener(e -> controller.startGame());
         levelsButton.addActionListener(e -> controller.showLevelSelect());
         settingsButton.addActionListener(e -> controller.showSettings());
         exitButton.addActionListener(e -> controller.exitGame());
 
         // Add buttons to panel
+        add(continueButton, gbc);
         add(startButton, gbc);
         add(levelsButton, gbc);
         add(settingsButton, gbc);
@@ -0,0 +1,77 @@
+package com.networkgame.ui;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * A block of text lines rendered once into a translucent image and blitted
+ * until the text changes, so unchanged labels cost one drawImage per frame.
+ */
+class TextImage {
+    private final Font font;
+    private final Color color;
+    private final int lineHeight;
+    private String[] lines = new String[0];
+    private BufferedImage image;
+    private int ascent;
+
+    TextImage(Font font, Color color, int lineHeight) {
+        this.font = font;
+        this.color = color;
+        this.lineHeight = lineHeight;
+    }
+
+    // Returns whether the text differed and the image was redrawn
+    boolean set(String... lines) {
+        if (Arrays.equals(this.lines, lines)) return false;
+        this.lines = lines;
+
+        BufferedImage scratch = image != null ? image : new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D measure = scratch.createGraphics();
+        FontMetrics fm = measure.getFontMetrics(font);
+        measure.dispose();
+        int width = 1;
+        for (String line : lines) {
+            width = Math.max(width, fm.stringWidth(line));
+        }
+        ascent = fm.getAscent();
+        int height = Math.max(1, (lines.length - 1) * lineHeight + fm.getAscent() + fm.getDescent());
+
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setFont(font);
+            g2d.setColor(color);
+            for (int i = 0; i < lines.length; i++) {
+                g2d.drawString(lines[i], 0, ascent + i * lineHeight);
+            }
+        } finally {
+            g2d.dispose();
+        }
+        return true;
+    }
+
+    // Draws with the first line's baseline at (x, baseline), as drawString would
+    void draw(Graphics2D g2d, int x, int baseline) {
+        if (image != null) {
+            g2d.drawImage(image, x, baseline - ascent, null);
+        }
+    }
+
+    // Zero until text has been set
+    int getWidth() {
+        return image == null ? 0 : image.getWidth();
+    }
+
+    // Grows area to cover the text as draw(x, baseline) would place it
+    void addBounds(Rectangle area, int x, int baseline) {
+        if (image == null) {
+            area.add(x, baseline);
+            return;
+        }
+        area.add(x, baseline - ascent);
+        area.add(x + image.getWidth(), baseline - ascent + image.getHeight());
+    }
+}
@@ -0,0 +1,25 @@
+package com.networkgame.util;
+
+public class Counter {
+    private final String name;
+    private long count;
+
+    public Counter(String name) {
+        this.name = name;
+    }
+
+    public void increment() {
+        count++;
+    }
+
+    public void add(long amount) {
+        count += amount;
+    }
+
+    public void reset() {
+        count = 0;
+    }
+
+    public String getName() { return name; }
+    public long getCount() { return count; }
+}
@@ -0,0 +1,17 @@
+package com.networkgame.util;
+
+public class Gauge {
+    private final String name;
+    private double value;
+
+    public Gauge(String name) {
+        this.name = name;
+    }
+
+    public void set(double value) {
+        this.value = value;
+    }
+
+    public String getName() { return name; }
+    public double getValue() { return value; }
+}
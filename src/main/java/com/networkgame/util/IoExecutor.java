@@ -0,0 +1,59 @@
+package com.networkgame.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executor for blocking work such as file and audio I/O, so none of it
+ * runs on the event dispatch thread or the game loop. Where the JDK has
+ * virtual threads every task gets one; otherwise tasks share a few daemon
+ * threads behind a bounded queue, and a task arriving while that queue is full
+ * runs on the submitting thread instead, so it is never lost and futures built
+ * on it always complete. Tasks should take copies of whatever state they need
+ * before they are submitted.
+ */
+public final class IoExecutor {
+    private static final int POOL_THREADS = 2;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final ExecutorService EXECUTOR = create();
+
+    private IoExecutor() {
+    }
+
+    public static ExecutorService get() {
+        return EXECUTOR;
+    }
+
+    public static boolean usesVirtualThreads() {
+        return !(EXECUTOR instanceof ThreadPoolExecutor);
+    }
+
+    private static ExecutorService create() {
+        try {
+            // Looked up by reflection so the build can keep targeting older JDKs
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Not there, or a preview feature that is switched off
+            AtomicInteger created = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                POOL_THREADS, POOL_THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "io-" + created.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // Submitters are the EDT and the game loop, which must not fail over a burst of I/O;
+                // they are held up for one task instead
+                new ThreadPoolExecutor.CallerRunsPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+}
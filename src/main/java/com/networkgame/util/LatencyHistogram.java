@@ -0,0 +1,83 @@
+package com.networkgame.util;
+
+/**
+ * Log-linear histogram of nanosecond durations, in the spirit of HdrHistogram.
+ * Each power of two is split into 32 sub-buckets, so any recorded value is
+ * reported within about 3% while the whole long range fits in a fixed array.
+ * Recording never allocates.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int HALF_SUB_BUCKETS = 1 << (SUB_BUCKET_BITS - 1);
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+
+    private final String name;
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long sum;
+    private long max;
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[indexOf(nanos)]++;
+        totalCount++;
+        sum += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    // Records the time since start and returns now, so phases can be chained
+    public long recordSince(long startNanos) {
+        long now = System.nanoTime();
+        record(now - startNanos);
+        return now;
+    }
+
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long rank = Math.max(1, (long)Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, middleOf(i));
+            }
+        }
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    private static int indexOf(long value) {
+        if (value < 2 * HALF_SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF_SUB_BUCKETS + (int)(value >>> shift);
+    }
+
+    private static long middleOf(int index) {
+        if (index < 2 * HALF_SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / HALF_SUB_BUCKETS - 1;
+        long lower = (long)(index % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS) << shift;
+        return lower + ((1L << shift) >> 1);
+    }
+
+    public String getName() { return name; }
+    public long getCount() { return totalCount; }
+    public long getMax() { return max; }
+}
@@ -0,0 +1,100 @@
+package com.networkgame.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Named counters, gauges and latency histograms, kept in registration order.
+ * Metrics are looked up once and held by the code that updates them; the
+ * registry itself is only walked for display and export.
+ */
+public class MetricsRegistry {
+    private final Map<String, Counter> counters = new LinkedHashMap<>();
+    private final Map<String, Gauge> gauges = new LinkedHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    public synchronized Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    public synchronized Gauge gauge(String name) {
+        return gauges.computeIfAbsent(name, Gauge::new);
+    }
+
+    public synchronized LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public synchronized void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    public void writeCsv(Path file) throws IOException {
+        Files.write(file, toCsv().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void writeJson(Path file) throws IOException {
+        Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Formatted copies, so the writing can happen on another thread while metrics keep changing
+    public synchronized String toCsv() {
+        StringBuilder out = new StringBuilder();
+        out.append("name,type,count,value,mean_ns,p50_ns,p90_ns,p99_ns,max_ns\n");
+        for (Counter counter : counters.values()) {
+            out.append(counter.getName() + ",counter," + counter.getCount() + ",,,,,,\n");
+        }
+        for (Gauge gauge : gauges.values()) {
+            out.append(gauge.getName() + ",gauge,," + format(gauge.getValue()) + ",,,,,\n");
+        }
+        for (LatencyHistogram histogram : histograms.values()) {
+            out.append(histogram.getName() + ",histogram," + histogram.getCount() + ","
+                + "," + format(histogram.getMean())
+                + "," + histogram.getPercentile(50)
+                + "," + histogram.getPercentile(90)
+                + "," + histogram.getPercentile(99)
+                + "," + histogram.getMax() + "\n");
+        }
+        return out.toString();
+    }
+
+    public synchronized String toJson() {
+        StringBuilder out = new StringBuilder();
+        out.append("{\n  \"counters\": {");
+        String separator = "\n";
+        for (Counter counter : counters.values()) {
+            out.append(separator + "    \"" + counter.getName() + "\": " + counter.getCount());
+            separator = ",\n";
+        }
+        out.append("\n  },\n  \"gauges\": {");
+        separator = "\n";
+        for (Gauge gauge : gauges.values()) {
+            out.append(separator + "    \"" + gauge.getName() + "\": " + format(gauge.getValue()));
+            separator = ",\n";
+        }
+        out.append("\n  },\n  \"histograms\": {");
+        separator = "\n";
+        for (LatencyHistogram histogram : histograms.values()) {
+            out.append(separator + "    \"" + histogram.getName() + "\": {"
+                + "\"count\": " + histogram.getCount()
+                + ", \"mean_ns\": " + format(histogram.getMean())
+                + ", \"p50_ns\": " + histogram.getPercentile(50)
+                + ", \"p90_ns\": " + histogram.getPercentile(90)
+                + ", \"p99_ns\": " + histogram.getPercentile(99)
+                + ", \"max_ns\": " + histogram.getMax() + "}");
+            separator = ",\n";
+        }
+        out.append("\n  }\n}\n");
+        return out.toString();
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,119 @@
+package com.networkgame.util;
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared drawing resources, so paint code can look up strokes, fonts and
+ * colors instead of constructing them every frame. Everything handed out is
+ * immutable. Lookups scan short lists; a game uses only a handful of each.
+ */
+public final class RenderCache {
+    // Unit shapes centred on the origin, scaled and placed with fill(...)
+    public static final Shape UNIT_SQUARE = new Rectangle2D.Double(-1, -1, 2, 2);
+    // Equilateral: unit half-width, height sqrt(3)
+    public static final Shape UNIT_TRIANGLE = triangle(Math.sqrt(3) / 2);
+    // Isosceles, as wide as it is tall
+    public static final Shape UNIT_WIDE_TRIANGLE = triangle(1);
+
+    private static final List<BasicStroke> strokes = new ArrayList<>();
+    private static final List<Font> fonts = new ArrayList<>();
+    private static final List<Color> colors = new ArrayList<>();
+
+    private RenderCache() {
+    }
+
+    public static synchronized BasicStroke stroke(float width) {
+        for (int i = 0; i < strokes.size(); i++) {
+            BasicStroke stroke = strokes.get(i);
+            if (stroke.getLineWidth() == width && stroke.getDashArray() == null) {
+                return stroke;
+            }
+        }
+        BasicStroke stroke = new BasicStroke(width);
+        strokes.add(stroke);
+        return stroke;
+    }
+
+    public static synchronized BasicStroke dashedStroke(float width, float dash) {
+        for (int i = 0; i < strokes.size(); i++) {
+            BasicStroke stroke = strokes.get(i);
+            float[] dashes = stroke.getDashArray();
+            if (stroke.getLineWidth() == width && dashes != null && dashes[0] == dash) {
+                return stroke;
+            }
+        }
+        BasicStroke stroke = new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{dash}, 0);
+        strokes.add(stroke);
+        return stroke;
+    }
+
+    public static synchronized Font font(String name, int style, int size) {
+        for (int i = 0; i < fonts.size(); i++) {
+            Font font = fonts.get(i);
+            if (font.getSize() == size && font.getStyle() == style && font.getName().equals(name)) {
+                return font;
+            }
+        }
+        Font font = new Font(name, style, size);
+        fonts.add(font);
+        return font;
+    }
+
+    public static synchronized Color color(int red, int green, int blue, int alpha) {
+        int argb = (alpha & 0xff) << 24 | (red & 0xff) << 16 | (green & 0xff) << 8 | (blue & 0xff);
+        for (int i = 0; i < colors.size(); i++) {
+            if (colors.get(i).getRGB() == argb) {
+                return colors.get(i);
+            }
+        }
+        Color color = new Color(red, green, blue, alpha);
+        colors.add(color);
+        return color;
+    }
+
+    public static AlphaRamp alphaRamp(Color base) {
+        return new AlphaRamp(base);
+    }
+
+    // Fills a unit shape scaled by scale and centred on (x, y)
+    public static void fill(Graphics2D g2d, Shape unitShape, double x, double y, double scale) {
+        g2d.translate(x, y);
+        g2d.scale(scale, scale);
+        g2d.fill(unitShape);
+        g2d.scale(1 / scale, 1 / scale);
+        g2d.translate(-x, -y);
+    }
+
+    private static Shape triangle(double halfHeight) {
+        Path2D.Double triangle = new Path2D.Double();
+        triangle.moveTo(0, -halfHeight);
+        triangle.lineTo(-1, halfHeight);
+        triangle.lineTo(1, halfHeight);
+        triangle.closePath();
+        return triangle;
+    }
+
+    /** One color at every 8-bit alpha level, built on first use of each level. */
+    public static final class AlphaRamp {
+        private final Color base;
+        private final Color[] levels = new Color[256];
+
+        private AlphaRamp(Color base) {
+            this.base = base;
+        }
+
+        public Color get(double alpha) {
+            int level = (int) Math.round(Math.max(0, Math.min(1, alpha)) * 255);
+            Color color = levels[level];
+            if (color == null) {
+                color = new Color(base.getRed(), base.getGreen(), base.getBlue(), level);
+                levels[level] = color;
+            }
+            return color;
+        }
+    }
+}
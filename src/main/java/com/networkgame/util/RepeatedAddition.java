@@ -0,0 +1,64 @@
+package com.networkgame.util;
+
+/**
+ * Closed form for a double stepped by the same amount over and over, as the
+ * game clocks and packets on a wire are. While the running value stays inside
+ * one binade every step rounds onto the same grid the same way, so the value
+ * moves by a fixed increment and any number of steps can be taken at once;
+ * only a step leaving the binade, or landing exactly halfway between two grid
+ * points, is taken on its own. Results are bit-for-bit those of the loop.
+ */
+public final class RepeatedAddition {
+    private RepeatedAddition() {
+    }
+
+    // x after that many rounds of x += step
+    public static double add(double x, double step, long times) {
+        if (step == 0) {
+            return times > 0 ? x + step : x;
+        }
+        while (times > 0) {
+            long steady = steadySteps(x, step);
+            if (steady == Long.MAX_VALUE) {
+                // Too small a step to move x at all
+                return x;
+            }
+            if (steady == 0) {
+                x += step;
+                times--;
+            } else {
+                long n = Math.min(steady, times);
+                x += n * steadyIncrement(x, step);
+                times -= n;
+            }
+        }
+        return x;
+    }
+
+    // How many of the next x += step each move x by exactly steadyIncrement(x, step):
+    // zero if the very next one has to be taken on its own, Long.MAX_VALUE if none moves x
+    public static long steadySteps(double x, double step) {
+        double magnitude = Math.abs(x);
+        if (!(magnitude >= Double.MIN_NORMAL) || magnitude == Double.POSITIVE_INFINITY || step == 0) return 0;
+        double ulp = Math.ulp(x);
+        double units = step / ulp;
+        if (units * ulp != step || Double.isInfinite(units)) return 0;
+        double rounded = Math.rint(units);
+        // A tie rounds to even, which depends on x's last bit
+        if (Math.abs(units - rounded) == 0.5) return 0;
+
+        // Each exact sum is within half a grid step of its result, so keeping the
+        // results a full step inside the binade keeps every sum on its grid
+        double low = Math.scalb(1.0, Math.getExponent(x));
+        double room = (step > 0) == (x > 0) ? 2 * low - ulp - magnitude : magnitude - low - ulp;
+        if (room <= 0) return 0;
+        if (rounded == 0) return Long.MAX_VALUE;
+        return (long) (room / ulp) / (long) Math.abs(rounded);
+    }
+
+    // What each of the next steadySteps(x, step) steps adds to x
+    public static double steadyIncrement(double x, double step) {
+        double ulp = Math.ulp(x);
+        return Math.rint(step / ulp) * ulp;
+    }
+}
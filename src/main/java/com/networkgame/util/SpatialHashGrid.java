@@ -0,0 +1,220 @@
+package com.networkgame.util;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over a set of points, hashed into a flat bucket table.
+ * Used as the broad phase for packet collisions: any two points closer than
+ * the cell size are guaranteed to land in the same or neighbouring cells.
+ * Points moved after a rebuild can be relocated one at a time; the pair walk
+ * keeps seeing the rebuilt positions, the neighbourhood queries the new ones.
+ */
+public class SpatialHashGrid {
+    private final double inverseCellSize;
+    private int count;
+    private int tableMask;
+    private int[] cellX;
+    private int[] cellY;
+    private int[] entryBucket;
+    private int[] bucketStart;
+    private int[] bucketEntries;
+    // Relocated entries, chained per bucket; only an entry's latest node counts
+    private int[] overflowHead;
+    private int[] latestNode;
+    private int[] nodeEntry = new int[16];
+    private int[] nodeNext = new int[16];
+    private int[] nodeCellX = new int[16];
+    private int[] nodeCellY = new int[16];
+    private int nodeCount;
+
+    // Forward half of the 3x3 neighbourhood, so every pair is visited once
+    private static final int[] NEIGHBOUR_DX = {1, -1, 0, 1};
+    private static final int[] NEIGHBOUR_DY = {0, 1, 1, 1};
+
+    public interface PairVisitor {
+        void visit(int first, int second);
+    }
+
+    public interface EntryVisitor {
+        void visit(int entry);
+    }
+
+    public SpatialHashGrid(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.inverseCellSize = 1.0 / cellSize;
+        this.cellX = new int[0];
+        this.cellY = new int[0];
+        this.entryBucket = new int[0];
+        this.bucketStart = new int[1];
+        this.bucketEntries = new int[0];
+        this.overflowHead = new int[1];
+        this.latestNode = new int[0];
+    }
+
+    public void rebuild(double[] xs, double[] ys, int count) {
+        this.count = count;
+        ensureCapacity(count);
+
+        // Counting sort of the entries by bucket, reusing the arrays between calls
+        Arrays.fill(bucketStart, 0, tableMask + 2, 0);
+        for (int i = 0; i < count; i++) {
+            int cx = (int) Math.floor(xs[i] * inverseCellSize);
+            int cy = (int) Math.floor(ys[i] * inverseCellSize);
+            int bucket = bucketOf(cx, cy);
+            cellX[i] = cx;
+            cellY[i] = cy;
+            entryBucket[i] = bucket;
+            bucketStart[bucket + 1]++;
+        }
+        for (int b = 0; b <= tableMask; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            int bucket = entryBucket[i];
+            bucketEntries[--bucketStart[bucket + 1]] = i;
+        }
+        // bucketStart[b + 1] was decremented back to the start of bucket b; shift it into place
+        for (int b = 0; b <= tableMask; b++) {
+            bucketStart[b] = bucketStart[b + 1];
+        }
+        bucketStart[tableMask + 1] = count;
+
+        Arrays.fill(overflowHead, 0, tableMask + 1, -1);
+        Arrays.fill(latestNode, 0, count, -1);
+        nodeCount = 0;
+    }
+
+    // Moves an entry to a new position for the neighbourhood queries
+    public void relocate(int entry, double x, double y) {
+        if (nodeCount == nodeEntry.length) {
+            int capacity = nodeCount * 2;
+            nodeEntry = Arrays.copyOf(nodeEntry, capacity);
+            nodeNext = Arrays.copyOf(nodeNext, capacity);
+            nodeCellX = Arrays.copyOf(nodeCellX, capacity);
+            nodeCellY = Arrays.copyOf(nodeCellY, capacity);
+        }
+        int cx = (int) Math.floor(x * inverseCellSize);
+        int cy = (int) Math.floor(y * inverseCellSize);
+        int bucket = bucketOf(cx, cy);
+        int node = nodeCount++;
+        nodeEntry[node] = entry;
+        nodeCellX[node] = cx;
+        nodeCellY[node] = cy;
+        nodeNext[node] = overflowHead[bucket];
+        overflowHead[bucket] = node;
+        latestNode[entry] = node;
+    }
+
+    public boolean isRelocated(int entry) {
+        return latestNode[entry] >= 0;
+    }
+
+    public boolean hasRelocated() {
+        return nodeCount > 0;
+    }
+
+    // Every entry in the cell of (x, y) or the eight around it, in no particular order.
+    // Anything closer to (x, y) than the cell size is among them.
+    public void forEachNear(double x, double y, EntryVisitor visitor) {
+        int cx = (int) Math.floor(x * inverseCellSize);
+        int cy = (int) Math.floor(y * inverseCellSize);
+        for (int ny = cy - 1; ny <= cy + 1; ny++) {
+            for (int nx = cx - 1; nx <= cx + 1; nx++) {
+                int bucket = bucketOf(nx, ny);
+                for (int k = bucketStart[bucket], end = bucketEnd(bucket); k < end; k++) {
+                    int j = bucketEntries[k];
+                    if (latestNode[j] < 0 && cellX[j] == nx && cellY[j] == ny) {
+                        visitor.visit(j);
+                    }
+                }
+                visitRelocated(bucket, nx, ny, visitor);
+            }
+        }
+    }
+
+    // As forEachNear, but only the entries relocated since the rebuild
+    public void forEachRelocatedNear(double x, double y, EntryVisitor visitor) {
+        if (nodeCount == 0) return;
+        int cx = (int) Math.floor(x * inverseCellSize);
+        int cy = (int) Math.floor(y * inverseCellSize);
+        for (int ny = cy - 1; ny <= cy + 1; ny++) {
+            for (int nx = cx - 1; nx <= cx + 1; nx++) {
+                visitRelocated(bucketOf(nx, ny), nx, ny, visitor);
+            }
+        }
+    }
+
+    private void visitRelocated(int bucket, int nx, int ny, EntryVisitor visitor) {
+        for (int node = overflowHead[bucket]; node >= 0; node = nodeNext[node]) {
+            if (latestNode[nodeEntry[node]] == node && nodeCellX[node] == nx && nodeCellY[node] == ny) {
+                visitor.visit(nodeEntry[node]);
+            }
+        }
+    }
+
+    public void forEachCandidatePair(PairVisitor visitor) {
+        forEachCandidatePair(0, count, visitor);
+    }
+
+    // Pairs whose first entry lies in [from, to), in the same order as the full walk.
+    // Read-only, so disjoint ranges can be walked from different threads.
+    public void forEachCandidatePair(int from, int to, PairVisitor visitor) {
+        for (int i = from; i < to; i++) {
+            int cx = cellX[i];
+            int cy = cellY[i];
+
+            // Same cell: only pair with later entries
+            int bucket = entryBucket[i];
+            for (int k = bucketStart[bucket], end = bucketEnd(bucket); k < end; k++) {
+                int j = bucketEntries[k];
+                if (j > i && cellX[j] == cx && cellY[j] == cy) {
+                    visitor.visit(i, j);
+                }
+            }
+
+            for (int n = 0; n < NEIGHBOUR_DX.length; n++) {
+                int nx = cx + NEIGHBOUR_DX[n];
+                int ny = cy + NEIGHBOUR_DY[n];
+                int neighbourBucket = bucketOf(nx, ny);
+                for (int k = bucketStart[neighbourBucket], end = bucketEnd(neighbourBucket); k < end; k++) {
+                    int j = bucketEntries[k];
+                    if (cellX[j] == nx && cellY[j] == ny) {
+                        visitor.visit(i, j);
+                    }
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    private int bucketEnd(int bucket) {
+        return bucketStart[bucket + 1];
+    }
+
+    private int bucketOf(int cx, int cy) {
+        return ((cx * 73856093) ^ (cy * 19349663)) & tableMask;
+    }
+
+    private void ensureCapacity(int count) {
+        if (cellX.length < count) {
+            int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, count - 1)) << 1);
+            cellX = new int[capacity];
+            cellY = new int[capacity];
+            entryBucket = new int[capacity];
+            bucketEntries = new int[capacity];
+            latestNode = new int[capacity];
+        }
+        // Keep roughly two buckets per entry so chains stay short
+        int tableSize = Math.max(16, Integer.highestOneBit(Math.max(1, count)) << 1);
+        if (tableMask + 1 < tableSize) {
+            tableMask = tableSize - 1;
+            bucketStart = new int[tableSize + 1];
+            overflowHead = new int[tableSize];
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.networkgame.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SoundBankTest {
+    private static final int CHUNK_BYTES = 4096;
+
+    // Mono at half the output rate comes out as stereo at the output rate, with the
+    // in-between frames interpolated
+    @Test
+    void decodesToTheOutputFormat() throws Exception {
+        short[] samples = {0, 1000, -1000, 32767, -32768, 20};
+        byte[] pcm = new byte[samples.length * 2];
+        for (int i = 0; i < samples.length; i++) {
+            pcm[2 * i] = (byte) samples[i];
+            pcm[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        byte[] decoded = SoundBank.decode(new ByteArrayInputStream(
+            wav(pcm, new AudioFormat(22050f, 16, 1, true, false))));
+
+        assertEquals(samples.length * 2 * 4, decoded.length);
+        for (int frame = 0; frame < samples.length * 2; frame++) {
+            int index = frame / 2;
+            int next = Math.min(index + 1, samples.length - 1);
+            int expected = frame % 2 == 0 ? samples[index] : (int) Math.round((samples[index] + samples[next]) / 2.0);
+            assertEquals(expected, sample(decoded, frame, 0), "left of frame " + frame);
+            assertEquals(expected, sample(decoded, frame, 1), "right of frame " + frame);
+        }
+    }
+
+    // Unsigned 8-bit stereo at the output rate only changes sample width; how Java Sound
+    // fills the new low byte is its own business
+    @Test
+    void decodesEightBitStereo() throws Exception {
+        byte[] pcm = {(byte) 128, (byte) 255, 0, (byte) 192};
+        byte[] decoded = SoundBank.decode(new ByteArrayInputStream(
+            wav(pcm, new AudioFormat(44100f, 8, 2, false, false))));
+
+        assertEquals(2 * 4, decoded.length);
+        assertEquals(0, sample(decoded, 0, 0) >> 8);
+        assertEquals(127, sample(decoded, 0, 1) >> 8);
+        assertEquals(-128, sample(decoded, 1, 0) >> 8);
+        assertEquals(64, sample(decoded, 1, 1) >> 8);
+    }
+
+    // Every .wav in the directory but the music, on disk or packed in a jar
+    @Test
+    void findsTheEffectsInTheSoundsDirectory(@TempDir Path directory) throws Exception {
+        Path sounds = Files.createDirectory(directory.resolve("sounds"));
+        for (String file : new String[] {"zap.wav", "atar.wav", "background.wav", "notes.txt"}) {
+            Files.write(sounds.resolve(file), new byte[0]);
+        }
+        Files.createDirectory(sounds.resolve("extra.wav"));
+        assertEquals(List.of("atar", "zap"), SoundBank.clipNames(sounds.toUri().toURL()));
+
+        Path jar = directory.resolve("game.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (String entry : new String[] {"sounds/", "sounds/zap.wav", "sounds/atar.wav",
+                    "sounds/background.wav", "sounds/old/boom.wav", "levels/level1.txt", "boom.wav"}) {
+                out.putNextEntry(new JarEntry(entry));
+                out.closeEntry();
+            }
+        }
+        assertEquals(List.of("atar", "zap"),
+            SoundBank.clipNames(new URL("jar:" + jar.toUri() + "!/sounds/")));
+        assertEquals(List.of(), SoundBank.clipNames(null));
+    }
+
+    // With every voice busy, each new sound cuts off whichever voice started first
+    @Test
+    void busyVoicesAreStolenOldestFirst() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger[] flushes = new AtomicInteger[8];
+        SourceDataLine[] lines = new SourceDataLine[flushes.length];
+        for (int i = 0; i < lines.length; i++) {
+            flushes[i] = new AtomicInteger();
+            lines[i] = blockingLine(release, flushes[i]);
+        }
+        SoundBank bank = new SoundBank(1f, lines);
+        try {
+            // Longer than one chunk, so a voice is still busy while its line blocks
+            bank.add("long", new byte[3 * CHUNK_BYTES]);
+            for (int i = 0; i < lines.length; i++) {
+                bank.play("long");
+            }
+            assertArrayEquals(new int[8], counts(flushes));
+
+            bank.play("long");
+            assertArrayEquals(new int[] {1, 0, 0, 0, 0, 0, 0, 0}, counts(flushes));
+            bank.play("long");
+            assertArrayEquals(new int[] {1, 1, 0, 0, 0, 0, 0, 0}, counts(flushes));
+            bank.play("missing");
+            assertArrayEquals(new int[] {1, 1, 0, 0, 0, 0, 0, 0}, counts(flushes));
+        } finally {
+            release.countDown();
+            bank.close();
+        }
+    }
+
+    private static byte[] wav(byte[] pcm, AudioFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (AudioInputStream in = new AudioInputStream(
+                new ByteArrayInputStream(pcm), format, pcm.length / format.getFrameSize())) {
+            AudioSystem.write(in, AudioFileFormat.Type.WAVE, (OutputStream) out);
+        }
+        return out.toByteArray();
+    }
+
+    private static int sample(byte[] pcm, int frame, int channel) {
+        int index = frame * 4 + channel * 2;
+        return (pcm[index + 1] << 8) | (pcm[index] & 0xff);
+    }
+
+    private static int[] counts(AtomicInteger[] flushes) {
+        return Arrays.stream(flushes).mapToInt(AtomicInteger::get).toArray();
+    }
+
+    // A line without gain control whose writes wait for the latch
+    private static SourceDataLine blockingLine(CountDownLatch release, AtomicInteger flushes) {
+        return (SourceDataLine) Proxy.newProxyInstance(SourceDataLine.class.getClassLoader(),
+            new Class<?>[] {SourceDataLine.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "write":
+                        release.await();
+                        return args[2];
+                    case "flush":
+                        flushes.incrementAndGet();
+                        return null;
+                    case "isControlSupported":
+                        return false;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "blocking line";
+                    default:
+                        return null;
+                }
+            });
+    }
+}
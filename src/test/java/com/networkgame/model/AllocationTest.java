@@ -0,0 +1,73 @@
+package com.networkgame.model;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// The steady-state tick must not allocate; same setup as the benchmark profile's AllocationCheck
+class AllocationTest {
+    private static final int PACKET_COUNT = 2_000;
+    private static final double TICK = 1.0 / 120;
+    private static final int WARMUP_TICKS = 1_000;
+    private static final int MEASURED_TICKS = 10_000;
+    // Leaves room for one-off JIT and class-loading noise, far below one object per tick
+    private static final long MAX_ALLOCATED_BYTES = 64 * 1024;
+
+    @Test
+    void steadyStateUpdateDoesNotAllocate() {
+        assertTicksDoNotAllocate(createState());
+    }
+
+    // Once the rewind arena is full, snapshots overwrite the oldest ones in place
+    @Test
+    void steadyStateUpdateWithRewindDoesNotAllocate() {
+        GameState gameState = createState();
+        gameState.setRewindBuffer(new RewindBuffer(TICK, 256 * 1024));
+        assertTicksDoNotAllocate(gameState);
+    }
+
+    private static void assertTicksDoNotAllocate(GameState gameState) {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP_TICKS; i++) {
+            gameState.update(TICK);
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_TICKS; i++) {
+            gameState.update(TICK);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(allocated <= MAX_ALLOCATED_BYTES,
+            MEASURED_TICKS + " ticks allocated " + allocated + " bytes, limit is " + MAX_ALLOCATED_BYTES);
+    }
+
+    static GameState createState() {
+        GameState gameState = new GameState();
+
+        // Systems with unconnected ports are updated every tick but never spawn
+        for (int i = 0; i < 4; i++) {
+            NetworkSystem system = new NetworkSystem(50 + i * 200, 200, 100, 200, i == 0);
+            system.addInputPort(PortType.SQUARE);
+            system.addOutputPort(PortType.TRIANGLE);
+            gameState.addSystem(system);
+        }
+
+        // Packets converge on the origin, so collisions keep happening throughout
+        Random random = new Random(42);
+        for (int i = 0; i < PACKET_COUNT; i++) {
+            double x = random.nextDouble() * 300;
+            double y = random.nextDouble() * 300;
+            gameState.addPacket(i % 2 == 0 ? new SquarePacket(x, y, null) : new TrianglePacket(x, y, null));
+        }
+        return gameState;
+    }
+}
@@ -0,0 +1,110 @@
+package com.networkgame.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+class CollisionTest {
+    // Three packets touching each other: the first impact pushes the first two well
+    // apart, so as in the original loop there is one wave and nobody is destroyed
+    @Test
+    void clusterMakesOneWaveAsTheOriginalLoop() {
+        GameState state = new GameState();
+        state.addPacket(new SquarePacket(100, 100, null));
+        state.addPacket(new SquarePacket(101.5, 100, null));
+        state.addPacket(new SquarePacket(100.7, 101.2, null));
+
+        state.checkPacketCollisions();
+
+        assertEquals(1, state.getActiveImpactWaves().size());
+        PacketStore store = state.getPacketStore();
+        for (int i = 0; i < store.size(); i++) {
+            assertTrue(store.noise[i] <= Packet.NOISE_THRESHOLD, "packet " + i + " destroyed");
+        }
+    }
+
+    // The same waves, in the same order, and the same packets afterwards as the
+    // original all-pairs loop, from sparse scenes to tight clumps, serial or forked
+    @Test
+    void matchesTheAllPairsLoop() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(11);
+            for (int round = 0; round < 60; round++) {
+                long seed = random.nextLong();
+                GameState expected = scene(seed);
+                List<String> expectedWaves = allPairs(expected.getPacketStore());
+
+                GameState actual = scene(seed);
+                if (round % 2 == 1) {
+                    actual.setParallelPhysics(pool, 0);
+                }
+                actual.checkPacketCollisions();
+                List<String> waves = new ArrayList<>();
+                for (ImpactWave wave : actual.getActiveImpactWaves()) {
+                    waves.add(center(wave.getCenterX(), wave.getCenterY()));
+                }
+
+                assertEquals(expectedWaves, waves, "round " + round);
+                PacketStore want = expected.getPacketStore();
+                PacketStore got = actual.getPacketStore();
+                int count = want.size();
+                assertArrayEquals(Arrays.copyOf(want.x, count), Arrays.copyOf(got.x, count));
+                assertArrayEquals(Arrays.copyOf(want.y, count), Arrays.copyOf(got.y, count));
+                assertArrayEquals(Arrays.copyOf(want.noise, count), Arrays.copyOf(got.noise, count));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static GameState scene(long seed) {
+        Random random = new Random(seed);
+        GameState state = new GameState();
+        int count = 2 + random.nextInt(300);
+        // Down to a few pixels a side, where every packet touches several others
+        double side = 3 + random.nextDouble() * (random.nextBoolean() ? 20 : 300);
+        for (int i = 0; i < count; i++) {
+            double x = random.nextDouble() * side;
+            double y = random.nextDouble() * side;
+            state.addPacket(i % 2 == 0 ? new SquarePacket(x, y, null) : new TrianglePacket(x, y, null));
+        }
+        return state;
+    }
+
+    // Each packet in turn against every other, on live positions, dropping those
+    // that ended their turn destroyed, as the loop before the broad phase did
+    private static List<String> allPairs(PacketStore store) {
+        List<String> waves = new ArrayList<>();
+        int count = store.size();
+        boolean[] retired = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < count; j++) {
+                if (j == i || retired[j]) continue;
+                double dx = store.x[i] - store.x[j];
+                double dy = store.y[i] - store.y[j];
+                double minDistance = (store.size[i] + store.size[j]) / 2;
+                if (Math.sqrt(dx * dx + dy * dy) < minDistance) {
+                    double impactX = (store.x[i] + store.x[j]) / 2;
+                    double impactY = (store.y[i] + store.y[j]) / 2;
+                    waves.add(center(impactX, impactY));
+                    store.applyImpact(i, impactX, impactY, 1.0);
+                    store.applyImpact(j, impactX, impactY, 1.0);
+                }
+            }
+            retired[i] = !store.moving[i] || store.noise[i] > Packet.NOISE_THRESHOLD;
+        }
+        return waves;
+    }
+
+    private static String center(double x, double y) {
+        return x + "," + y;
+    }
+}
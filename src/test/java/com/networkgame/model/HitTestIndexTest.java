@@ -0,0 +1,136 @@
+package com.networkgame.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class HitTestIndexTest {
+    // Picking and culling through the index find exactly what checking everything finds,
+    // as wires come and go
+    @Test
+    void queriesMatchBruteForce() {
+        Random random = new Random(15);
+        for (int round = 0; round < 20; round++) {
+            GameState state = new GameState();
+            state.setRemainingWireLength(1e9);
+            List<Port> inputs = new ArrayList<>();
+            List<Port> outputs = new ArrayList<>();
+            int systemCount = 2 + random.nextInt(30);
+            for (int i = 0; i < systemCount; i++) {
+                // Some negative coordinates so cells on both sides of zero are covered
+                NetworkSystem system = new NetworkSystem(random.nextDouble() * 3000 - 1000,
+                    random.nextDouble() * 2000 - 700, 40 + random.nextDouble() * 120, 40 + random.nextDouble() * 120,
+                    random.nextInt(5) == 0);
+                for (int k = 1 + random.nextInt(3); k > 0; k--) {
+                    system.addInputPort(random.nextBoolean() ? PortType.SQUARE : PortType.TRIANGLE);
+                    system.addOutputPort(random.nextBoolean() ? PortType.SQUARE : PortType.TRIANGLE);
+                }
+                state.addSystem(system);
+                inputs.addAll(system.getInputPorts());
+                outputs.addAll(system.getOutputPorts());
+            }
+
+            for (int step = 0; step < 60; step++) {
+                List<Connection> connections = state.getConnections();
+                if (random.nextInt(4) > 0 || connections.isEmpty()) {
+                    Port from = outputs.get(random.nextInt(outputs.size()));
+                    Port to = inputs.get(random.nextInt(inputs.size()));
+                    if (random.nextBoolean()) {
+                        state.addConnection(from, to);
+                    } else {
+                        state.addConnection(from, to, bent(random, from, to));
+                    }
+                } else {
+                    state.removeConnection(connections.get(random.nextInt(connections.size())));
+                }
+
+                for (int query = 0; query < 20; query++) {
+                    checkQueries(state, random, inputs, outputs);
+                }
+            }
+        }
+    }
+
+    private static void checkQueries(GameState state, Random random, List<Port> inputs, List<Port> outputs) {
+        double x = random.nextDouble() * 3400 - 1200;
+        double y = random.nextDouble() * 2400 - 900;
+        if (random.nextBoolean()) {
+            // Right next to a port, where picks actually land
+            List<Port> ports = random.nextBoolean() ? inputs : outputs;
+            Port near = ports.get(random.nextInt(ports.size()));
+            x = near.getX() + random.nextGaussian() * 10;
+            y = near.getY() + random.nextGaussian() * 10;
+        }
+        double radius = 1 + random.nextDouble() * 40;
+        String where = "at (" + x + ", " + y + ") within " + radius;
+
+        for (boolean input : new boolean[] {true, false}) {
+            Port expected = null;
+            double best = radius * radius;
+            Port found = state.findPortAt(x, y, radius, input);
+            for (Port port : input ? inputs : outputs) {
+                if (squaredDistance(port, x, y) < best) {
+                    best = squaredDistance(port, x, y);
+                    expected = port;
+                }
+            }
+            assertEquals(expected == null ? null : best, found == null ? null : squaredDistance(found, x, y),
+                "port " + where);
+        }
+
+        Connection nearest = null;
+        double closest = radius;
+        for (Connection connection : state.getConnections()) {
+            double distance = connection.distanceTo(x, y);
+            if (distance < closest) {
+                closest = distance;
+                nearest = connection;
+            }
+        }
+        // Wires sharing a port or a route tie, and either may be picked
+        Connection found = state.findConnectionAt(x, y, radius);
+        assertEquals(nearest == null ? null : closest, found == null ? null : found.distanceTo(x, y), "wire " + where);
+
+        Rectangle2D area = new Rectangle2D.Double(x, y, random.nextDouble() * 800, random.nextDouble() * 600);
+        List<NetworkSystem> systems = new ArrayList<>();
+        state.findSystemsIn(area, systems);
+        HashSet<NetworkSystem> expectedSystems = new HashSet<>();
+        for (NetworkSystem system : state.getSystems()) {
+            if (system.getBounds().intersects(area)) expectedSystems.add(system);
+        }
+        assertEquals(expectedSystems, new HashSet<>(systems), "systems in " + area);
+        assertEquals(expectedSystems.size(), systems.size(), "systems listed twice in " + area);
+
+        List<Connection> wires = new ArrayList<>();
+        state.findConnectionsIn(area, wires);
+        HashSet<Connection> expectedWires = new HashSet<>();
+        for (Connection connection : state.getConnections()) {
+            if (connection.intersects(area)) expectedWires.add(connection);
+        }
+        assertEquals(expectedWires, new HashSet<>(wires), "wires in " + area);
+        assertEquals(expectedWires.size(), wires.size(), "wires listed twice in " + area);
+    }
+
+    private static double squaredDistance(Port port, double x, double y) {
+        double dx = port.getX() - x;
+        double dy = port.getY() - y;
+        return dx * dx + dy * dy;
+    }
+
+    // A detour through one or two random points, so wires cross many cells at odd angles
+    private static Path2D bent(Random random, Port from, Port to) {
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(from.getX(), from.getY());
+        for (int k = 1 + random.nextInt(2); k > 0; k--) {
+            path.lineTo(from.getX() + random.nextGaussian() * 300, from.getY() + random.nextGaussian() * 300);
+        }
+        path.lineTo(to.getX(), to.getY());
+        return path;
+    }
+}
@@ -0,0 +1,59 @@
+package com.networkgame.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.jupiter.api.Test;
+
+class LevelLoaderTest {
+    // Far more ports on one line than the token buffer starts with
+    @Test
+    void longLinesKeepEveryToken() throws IOException {
+        StringBuilder in = new StringBuilder("in");
+        for (int i = 0; i < 40; i++) {
+            in.append(i % 3 == 0 ? " TRIANGLE" : " SQUARE");
+        }
+        LevelConfig level = parse("system 10 20\n" + in + "  # forty of them\nout SQUARE\n");
+
+        LevelConfig.SystemConfig system = level.getSystems().get(0);
+        assertEquals(40, system.getInputPorts().size());
+        assertEquals(PortType.TRIANGLE, system.getInputPorts().get(39));
+        assertEquals(1, system.getOutputPorts().size());
+    }
+
+    @Test
+    void badNumbersNameTheLine() {
+        assertFails("wire 5000\nsystem 1O 20\n", ":2:");
+        assertFails("wire lots\n", ":1:");
+        assertFails("system 10 20\npackets SQUARE 2.5\n", ":2:");
+        assertFails("system 10 20\npackets SQUARE -3\n", ":2:");
+    }
+
+    @Test
+    void packetsNeedAnExistingSystem() throws IOException {
+        assertFails("system 10 20\npackets SQUARE 2 -1\n", ":2:");
+        assertFails("system 10 20\npackets SQUARE 2 0\n", ":2:");
+        assertFails("system 10 20\npackets SQUARE 2 2\n", "missing system 2");
+        assertEquals(1, parse("system 10 20\npackets SQUARE 2 1\n").getPackets().get(0).getSystemId());
+    }
+
+    @Test
+    void unknownStatementsAndTypesNameTheLine() {
+        assertFails("wire 10\n\n# comment\nsytem 10 20\n", ":4: unknown statement 'sytem'");
+        assertFails("system 10 20\nin SQUARE HEXAGON\n", ":2:");
+        assertFails("in SQUARE\n", ":1: ports declared before any system");
+    }
+
+    private static void assertFails(String text, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> parse(text), text);
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+
+    private static LevelConfig parse(String text) throws IOException {
+        return LevelLoader.parse(1, new BufferedReader(new StringReader(text)), "test.txt");
+    }
+}
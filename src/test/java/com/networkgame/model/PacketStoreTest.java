@@ -0,0 +1,166 @@
+package com.networkgame.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PacketStoreTest {
+    private static final double TICK = 1.0 / 60;
+
+    @Test
+    void detachWritesBackEveryColumn() {
+        Packet packet = new TrianglePacket(10, 20, null);
+        packet.maxSpeed = 7;
+        packet.acceleration = 0.3;
+        packet.deceleration = 0.2;
+        packet.noise = 0.4;
+        packet.targetX = 500;
+        packet.targetY = 20;
+
+        PacketStore store = new PacketStore();
+        store.add(packet);
+        for (int i = 0; i < 30; i++) {
+            store.update(0, TICK);
+        }
+        store.applyImpact(0, 0, 20, 1.0);
+        double x = store.x[0], speed = store.speed[0], noise = store.noise[0];
+        store.removeAt(0);
+
+        assertNull(packet.store);
+        assertEquals(x, packet.x);
+        assertEquals(speed, packet.speed);
+        assertEquals(noise, packet.noise);
+        assertEquals(7, packet.maxSpeed);
+        assertEquals(0.3, packet.acceleration);
+        assertEquals(0.2, packet.deceleration);
+        assertEquals(3.0, packet.size);
+    }
+
+    // A detached packet and a stored one follow the same physics step for step
+    @Test
+    void detachedPacketsMoveLikeStoredOnes() {
+        NetworkSystem from = new NetworkSystem(0, 0, 100, 200, false);
+        NetworkSystem to = new NetworkSystem(400, 300, 100, 200, true);
+        from.addOutputPort(PortType.TRIANGLE);
+        to.addInputPort(PortType.TRIANGLE);
+        Connection wire = new Connection(from.getOutputPorts().get(0), to.getInputPorts().get(0),
+            new double[] {from.getOutputPorts().get(0).getX(), 250, to.getInputPorts().get(0).getX()},
+            new double[] {from.getOutputPorts().get(0).getY(), 40, to.getInputPorts().get(0).getY()});
+
+        for (boolean onWire : new boolean[] {false, true}) {
+            Packet detached = new TrianglePacket(0, 0, null);
+            Packet stored = new TrianglePacket(0, 0, null);
+            for (Packet packet : new Packet[] {detached, stored}) {
+                packet.maxSpeed = 40;
+                packet.acceleration = 30;
+                packet.setTargetPort(to.getInputPorts().get(0));
+                if (onWire) {
+                    packet.x = wire.getPointX(0);
+                    packet.y = wire.getPointY(0);
+                    packet.wire = wire;
+                }
+            }
+            PacketStore store = new PacketStore();
+            store.add(stored);
+
+            for (int i = 0; i < 2000; i++) {
+                stored.update(TICK);
+                detached.update(TICK);
+                if (i % 100 == 0) {
+                    stored.applyImpact(stored.getX() + 3, stored.getY(), 0.1);
+                    detached.applyImpact(detached.getX() + 3, detached.getY(), 0.1);
+                }
+                assertEquals(stored.getX(), detached.getX(), "x at step " + i);
+                assertEquals(stored.getY(), detached.getY(), "y at step " + i);
+                assertEquals(stored.isMoving(), detached.isMoving());
+                assertEquals(stored.getNoise(), detached.getNoise());
+                assertEquals(stored.getDistanceAlongWire(), detached.getDistanceAlongWire());
+            }
+        }
+    }
+
+    // Removing the first, a run in the middle and the last slot in one pass: stable
+    // removal keeps the survivors in order, the other fills holes from the end as
+    // removeAt would, and either way every survivor's handle finds its own slot
+    @Test
+    void bulkRemovalKeepsOrderAndHandles() {
+        boolean[] remove = new boolean[10];
+        remove[0] = remove[4] = remove[5] = remove[9] = true;
+        for (boolean stable : new boolean[] {true, false}) {
+            PacketStore store = new PacketStore();
+            List<Packet> expected = new ArrayList<>();
+            List<Packet> removed = new ArrayList<>();
+            for (int i = 0; i < remove.length; i++) {
+                Packet packet = new SquarePacket(i, 0, null);
+                store.add(packet);
+                expected.add(packet);
+                if (remove[i]) removed.add(packet);
+            }
+            if (stable) {
+                expected.removeAll(removed);
+            } else {
+                for (int slot = remove.length - 1; slot >= 0; slot--) {
+                    if (remove[slot]) {
+                        expected.set(slot, expected.get(expected.size() - 1));
+                        expected.remove(expected.size() - 1);
+                    }
+                }
+            }
+
+            store.removeAll(remove, stable);
+
+            assertEquals(expected, store.asList(), "stable " + stable);
+            assertSurvivorsResolve(store);
+            for (Packet packet : removed) {
+                assertNull(packet.store);
+                assertEquals(-1, expected.indexOf(packet));
+            }
+            // Freed handles are reused without disturbing the survivors
+            Packet late = new TrianglePacket(100, 0, null);
+            store.add(late);
+            assertSame(late, store.get(store.size() - 1));
+            assertSurvivorsResolve(store);
+        }
+    }
+
+    // The same through a tick: packets destroyed at the start, the middle and the end
+    // of the slots leave together and the rest keep their order
+    @Test
+    void finishedPacketsLeaveTogetherInOrder() {
+        GameState state = new GameState();
+        state.setStablePacketOrder(true);
+        List<Packet> survivors = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // Far apart and heading far away, so nothing touches or arrives
+            Packet packet = new SquarePacket(i * 50, 0, null);
+            packet.targetX = 10_000;
+            packet.targetY = 0;
+            if (i == 0 || i == 4 || i == 5 || i == 9) {
+                packet.noise = Packet.NOISE_THRESHOLD + 1;
+            } else {
+                survivors.add(packet);
+            }
+            state.addPacket(packet);
+        }
+
+        state.update(TICK);
+
+        assertEquals(survivors, state.getActivePackets());
+        assertSurvivorsResolve(state.getPacketStore());
+        for (int i = 0; i < survivors.size(); i++) {
+            assertEquals(state.getPacketStore().x[i], survivors.get(i).getX());
+        }
+    }
+
+    private static void assertSurvivorsResolve(PacketStore store) {
+        for (int slot = 0; slot < store.size(); slot++) {
+            Packet packet = store.get(slot);
+            assertSame(store, packet.store);
+            assertEquals(slot, store.slotOfHandle(packet.handle), "handle of slot " + slot);
+        }
+    }
+}
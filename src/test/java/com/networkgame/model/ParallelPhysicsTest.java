@@ -0,0 +1,57 @@
+package com.networkgame.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelPhysicsTest {
+    private static final double TICK = 1.0 / 60;
+    private static final int PACKET_COUNT = 4_000;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutDown() {
+        pool.shutdownNow();
+    }
+
+    // Forked motion, wave pushes and collisions leave the state byte for byte as a serial tick does
+    @Test
+    void parallelTicksMatchSerialTicks() throws IOException {
+        GameState serial = createState();
+        GameState parallel = createState();
+        parallel.setParallelPhysics(pool, 0);
+
+        for (int tick = 1; tick <= 600; tick++) {
+            serial.update(TICK);
+            parallel.update(TICK);
+            if (tick % 50 == 0) {
+                assertArrayEquals(SaveFileTest.image(serial), SaveFileTest.image(parallel), "tick " + tick);
+            }
+        }
+        assertTrue(serial.getActivePackets().size() < PACKET_COUNT, "packets collided along the way");
+    }
+
+    // Dense enough that waves and collisions keep every phase busy, with a third of the packets bound for a port
+    private static GameState createState() {
+        GameState state = new GameState();
+        Random random = new Random(42);
+        double side = Math.sqrt(PACKET_COUNT * 400.0);
+        NetworkSystem system = new NetworkSystem(side / 2, side / 2, 50, 50, true);
+        system.addInputPort(PortType.SQUARE);
+        state.addSystem(system);
+        Port target = system.getInputPorts().get(0);
+        for (int i = 0; i < PACKET_COUNT; i++) {
+            double x = random.nextDouble() * side;
+            double y = random.nextDouble() * side;
+            Port packetTarget = i % 3 == 0 ? target : null;
+            state.addPacket(i % 2 == 0 ? new SquarePacket(x, y, packetTarget) : new TrianglePacket(x, y, packetTarget));
+        }
+        return state;
+    }
+}
@@ -0,0 +1,131 @@
+package com.networkgame.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RewindBufferTest {
+    private static final double TICK = 1.0 / 60;
+    private static final int RECORDED_TICKS = 2_500;
+
+    // Any seek, back or forward, lands on exactly the state the uninterrupted run had
+    @Test
+    void seeksMatchTheOriginalRunByteForByte() throws IOException {
+        Random random = new Random(8);
+        List<Integer> targets = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            targets.add(random.nextInt(RECORDED_TICKS));
+        }
+        Map<Integer, byte[]> expected = referenceImages(targets);
+
+        GameState state = createState();
+        RewindBuffer buffer = new RewindBuffer(TICK);
+        state.setRewindBuffer(buffer);
+        for (int i = 0; i < RECORDED_TICKS; i++) {
+            state.update(TICK);
+        }
+        int recorded = buffer.getSnapshotCount();
+
+        for (int target : targets) {
+            buffer.seek(state, target * TICK);
+            assertArrayEquals(expected.get(target), SaveFileTest.image(state), "seek to tick " + target);
+        }
+        // Replaying matched the history, so none of it was dropped or stored twice
+        assertEquals(recorded, buffer.getSnapshotCount());
+    }
+
+    // A small budget keeps only the newest keyframe groups, and seeks within them stay exact
+    @Test
+    void smallBudgetEvictsOldestAndStaysExact() throws IOException {
+        List<Integer> targets = List.of(2_400, 1_900, 2_450, 2_100);
+        Map<Integer, byte[]> expected = referenceImages(targets);
+
+        GameState state = createState();
+        RewindBuffer buffer = new RewindBuffer(TICK, 256 * 1024);
+        state.setRewindBuffer(buffer);
+        for (int i = 0; i < RECORDED_TICKS; i++) {
+            state.update(TICK);
+            assertTrue(buffer.getMemoryUsage() <= 256 * 1024, "usage at tick " + i);
+        }
+        assertTrue(buffer.getOldestTime() > 0);
+
+        for (int target : targets) {
+            assertTrue(target * TICK >= buffer.getOldestTime());
+            buffer.seek(state, target * TICK);
+            assertArrayEquals(expected.get(target), SaveFileTest.image(state), "seek to tick " + target);
+        }
+    }
+
+    // Changing the game after seeking back replaces the history from there on
+    @Test
+    void divergingAfterSeekingBackDiscardsLaterHistory() throws IOException {
+        GameState state = createState();
+        RewindBuffer buffer = new RewindBuffer(TICK);
+        state.setRewindBuffer(buffer);
+        for (int i = 0; i < RECORDED_TICKS; i++) {
+            state.update(TICK);
+        }
+        int recorded = buffer.getSnapshotCount();
+
+        buffer.seek(state, 1_000 * TICK);
+        state.removeConnection(state.getConnections().get(0));
+        byte[] changed = SaveFileTest.image(state);
+        buffer.seek(state, 1_600 * TICK);
+        assertTrue(buffer.getSnapshotCount() < recorded);
+
+        // The same change, simulated without the rewind buffer
+        GameState copy = createState();
+        copy.readState(ByteBuffer.wrap(changed));
+        for (int i = 1_000; i < 1_600; i++) {
+            copy.update(TICK);
+        }
+        assertArrayEquals(SaveFileTest.image(copy), SaveFileTest.image(state));
+
+        buffer.seek(state, 1_200 * TICK);
+        GameState again = createState();
+        again.readState(ByteBuffer.wrap(changed));
+        for (int i = 1_000; i < 1_200; i++) {
+            again.update(TICK);
+        }
+        assertArrayEquals(SaveFileTest.image(again), SaveFileTest.image(state));
+    }
+
+    private static Map<Integer, byte[]> referenceImages(List<Integer> ticks) throws IOException {
+        Map<Integer, byte[]> images = new HashMap<>();
+        GameState reference = createState();
+        for (int tick = 0; tick < RECORDED_TICKS; tick++) {
+            if (ticks.contains(tick)) {
+                images.put(tick, SaveFileTest.image(reference));
+            }
+            reference.update(TICK);
+        }
+        return images;
+    }
+
+    // Wired level with packets drifting through it, some bound for inputs, so they
+    // keep colliding and setting off waves for the whole run
+    private static GameState createState() {
+        GameState state = SaveFileTest.wiredLevel();
+        Random random = new Random(3);
+        List<Port> inputs = new ArrayList<>();
+        for (NetworkSystem system : state.getSystems()) {
+            inputs.addAll(system.getInputPorts());
+        }
+        for (int i = 0; i < 120; i++) {
+            Port target = i % 3 == 0 ? inputs.get(random.nextInt(inputs.size())) : null;
+            double x = random.nextDouble() * 300;
+            double y = random.nextDouble() * 300;
+            state.addPacket(i % 2 == 0 ? new SquarePacket(x, y, target) : new TrianglePacket(x, y, target));
+        }
+        return state;
+    }
+}
@@ -0,0 +1,170 @@
+package com.networkgame.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RoutingTableTest {
+    private static final double EPSILON = 1e-6;
+
+    // A's only square wire leads to B, whose only wire leads back to A: a square packet
+    // must take the triangle wire to the reference rather than circle between the two
+    @Test
+    void neverRoutesBackTowardsTheSender() {
+        GameState state = new GameState();
+        state.setRemainingWireLength(1e9);
+        NetworkSystem a = new NetworkSystem(0, 0, 100, 100, false);
+        a.addInputPort(PortType.SQUARE);
+        a.addOutputPort(PortType.SQUARE);
+        a.addOutputPort(PortType.TRIANGLE);
+        NetworkSystem b = new NetworkSystem(300, 0, 100, 100, false);
+        b.addInputPort(PortType.SQUARE);
+        b.addOutputPort(PortType.SQUARE);
+        NetworkSystem reference = new NetworkSystem(600, 300, 100, 100, true);
+        reference.addInputPort(PortType.TRIANGLE);
+        state.addSystem(a);
+        state.addSystem(b);
+        state.addSystem(reference);
+
+        state.addConnection(a.getOutputPorts().get(0), b.getInputPorts().get(0));
+        state.addConnection(b.getOutputPorts().get(0), a.getInputPorts().get(0));
+        state.addConnection(a.getOutputPorts().get(1), reference.getInputPorts().get(0));
+        Connection toReference = state.getConnections().get(2);
+
+        assertSame(toReference, state.getNextHop(a, PortType.SQUARE));
+        assertSame(toReference, state.getNextHop(a, PortType.TRIANGLE));
+        assertSame(state.getConnections().get(1), state.getNextHop(b, PortType.SQUARE));
+    }
+
+    // Incremental updates over random wiring agree with Bellman-Ford and with a full
+    // rebuild, and every next hop leads to a reference without revisiting a system
+    @Test
+    void randomWiringMatchesBellmanFord() {
+        for (int seed = 0; seed < 60; seed++) {
+            Random random = new Random(seed);
+            int n = 5 + random.nextInt(40);
+            GameState state = new GameState();
+            state.setRemainingWireLength(1e12);
+            for (int i = 0; i < n; i++) {
+                NetworkSystem system = new NetworkSystem(random.nextInt(2000), random.nextInt(2000), 100, 100,
+                    random.nextInt(6) == 0);
+                for (int k = 0; k < 3; k++) {
+                    system.addInputPort(random.nextBoolean() ? PortType.SQUARE : PortType.TRIANGLE);
+                    system.addOutputPort(random.nextBoolean() ? PortType.SQUARE : PortType.TRIANGLE);
+                }
+                state.addSystem(system);
+            }
+            List<NetworkSystem> systems = state.getSystems();
+
+            for (int step = 0; step < 200; step++) {
+                List<Connection> connections = state.getConnections();
+                if (random.nextInt(3) > 0 || connections.isEmpty()) {
+                    NetworkSystem from = systems.get(random.nextInt(n));
+                    NetworkSystem to = systems.get(random.nextInt(n));
+                    state.addConnection(from.getOutputPorts().get(random.nextInt(3)),
+                        to.getInputPorts().get(random.nextInt(3)));
+                } else {
+                    state.removeConnection(connections.get(random.nextInt(connections.size())));
+                }
+                check(state, "seed " + seed + " step " + step);
+            }
+        }
+    }
+
+    private static void check(GameState state, String where) {
+        List<NetworkSystem> systems = state.getSystems();
+        List<Connection> connections = state.getConnections();
+        int n = systems.size();
+        double[] expected = bellmanFord(n, connections);
+
+        RoutingTable fresh = new RoutingTable();
+        for (NetworkSystem system : systems) {
+            int index = system.getIndex();
+            fresh.addSystem(system);
+            system.setIndex(index);
+        }
+        fresh.rebuild(connections);
+
+        for (int i = 0; i < n; i++) {
+            NetworkSystem system = systems.get(i);
+            double distance = state.getRouteLength(system);
+            assertEquals(expected[i], distance, EPSILON, where + " distance of " + i);
+            assertEquals(distance, fresh.distance(system), EPSILON, where + " rebuilt distance of " + i);
+
+            for (PortType type : PortType.values()) {
+                Connection hop = state.getNextHop(system, type);
+                Connection rebuilt = fresh.nextHop(system, type);
+                if (distance == Double.POSITIVE_INFINITY) {
+                    assertNull(hop, where + " hop from unreachable " + i);
+                    assertNull(rebuilt, where + " rebuilt hop from unreachable " + i);
+                    continue;
+                }
+                assertNotNull(hop, where + " hop from " + i);
+                assertNotNull(rebuilt, where + " rebuilt hop from " + i);
+                assertEquals(routeVia(hop, expected), routeVia(rebuilt, expected), EPSILON, where + " rebuilt hop");
+                checkChoice(system, type, hop, expected, connections, where);
+                if (!system.isReferenceSystem()) {
+                    checkReachesReference(state, system, type, n, where);
+                }
+            }
+        }
+    }
+
+    // The hop leads closer, and among the wires that do it is compatible if any is, then shortest
+    private static void checkChoice(NetworkSystem system, PortType type, Connection hop, double[] expected,
+                                    List<Connection> connections, String where) {
+        double distance = expected[system.getIndex()];
+        assertTrue(arrivalCost(hop, expected) < distance || Math.abs(routeVia(hop, expected) - distance) < EPSILON,
+            where + " hop does not lead closer");
+        boolean compatible = hop.getStartPort().getType() == type;
+        for (Connection wire : connections) {
+            if (wire.getStartPort().getParentSystem() != system || !(arrivalCost(wire, expected) < distance)) continue;
+            boolean wireCompatible = wire.getStartPort().getType() == type;
+            assertTrue(compatible || !wireCompatible, where + " a compatible wire leads closer");
+            if (wireCompatible == compatible) {
+                assertTrue(routeVia(hop, expected) <= routeVia(wire, expected) + EPSILON, where + " hop is not shortest");
+            }
+        }
+    }
+
+    private static void checkReachesReference(GameState state, NetworkSystem start, PortType type, int n,
+                                              String where) {
+        NetworkSystem system = start;
+        for (int hops = 0; hops < n; hops++) {
+            system = state.getNextHop(system, type).getEndPort().getParentSystem();
+            if (system.isReferenceSystem()) return;
+        }
+        throw new AssertionError(where + ": next hops from " + start.getIndex() + " never reach a reference");
+    }
+
+    private static double[] bellmanFord(int n, List<Connection> connections) {
+        double[] distance = new double[n];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        for (int round = 0; round <= n; round++) {
+            for (Connection wire : connections) {
+                int from = wire.getStartPort().getParentSystem().getIndex();
+                double candidate = routeVia(wire, distance);
+                if (candidate < distance[from]) {
+                    distance[from] = candidate;
+                }
+            }
+        }
+        return distance;
+    }
+
+    private static double arrivalCost(Connection wire, double[] distance) {
+        NetworkSystem end = wire.getEndPort().getParentSystem();
+        return end.isReferenceSystem() ? 0 : distance[end.getIndex()];
+    }
+
+    private static double routeVia(Connection wire, double[] distance) {
+        return wire.getLength() + arrivalCost(wire, distance);
+    }
+}
@@ -0,0 +1,188 @@
+package com.networkgame.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SaveFileTest {
+    private static final double TICK = 1.0 / 60;
+
+    @TempDir
+    Path directory;
+
+    // A loaded save has the same state image and keeps replaying in step with the original
+    @Test
+    void loadedGameReplaysIdentically() throws IOException {
+        GameState original = wiredLevel();
+        for (int i = 0; i < 600; i++) {
+            original.update(TICK);
+        }
+        // Stop with a wave mid-flight, so its swept band has to survive too
+        original.addPacket(new SquarePacket(300, 300, null));
+        original.addPacket(new TrianglePacket(302, 300, null));
+        original.update(TICK);
+        original.update(TICK);
+        assertFalse(original.getActiveImpactWaves().isEmpty(), "waves in flight");
+
+        Path path = directory.resolve("save.bin");
+        SaveFile.write(path, SaveFile.encode(1, new double[] {3.5, 0, 1}, original));
+        SaveFile loaded = SaveFile.read(path);
+        assertEquals(1, loaded.getLevel());
+        assertArrayEquals(new double[] {3.5, 0, 1}, loaded.getEffectSecondsLeft());
+
+        GameState restored = loaded.getGameState();
+        assertArrayEquals(image(original), image(restored));
+        for (int i = 0; i < 600; i++) {
+            original.update(TICK);
+            restored.update(TICK);
+        }
+        assertArrayEquals(image(original), image(restored));
+    }
+
+    // Port references used to pack the system index into 16 bits
+    @Test
+    void portsOfHighSystemIndicesSurvive() throws IOException {
+        GameState original = new GameState();
+        for (int i = 0; i < 40_000; i++) {
+            NetworkSystem system = new NetworkSystem(i, 0, 10, 10, false);
+            system.addInputPort(PortType.SQUARE);
+            original.addSystem(system);
+        }
+        Port target = original.getSystems().get(39_999).getInputPorts().get(0);
+        original.addPacket(new SquarePacket(5, 5, target));
+
+        Path path = directory.resolve("save.bin");
+        SaveFile.write(path, SaveFile.encode(1, new double[0], original));
+        GameState restored = SaveFile.read(path).getGameState();
+        assertSame(restored.getSystems().get(39_999).getInputPorts().get(0),
+            restored.getPacketStore().targetPort[0]);
+    }
+
+    @Test
+    void corruptCountsAreReportedAsCorruptFiles() throws IOException {
+        Path path = directory.resolve("save.bin");
+        for (int effectCount : new int[] {-1, Integer.MAX_VALUE, 1_000}) {
+            ByteBuffer valid = SaveFile.encode(1, new double[0], new GameState());
+            byte[] bytes = new byte[valid.remaining()];
+            valid.get(bytes);
+            // Effect count follows magic, version and level
+            ByteBuffer.wrap(bytes).putInt(10, effectCount);
+            Files.write(path, bytes);
+            assertThrows(IOException.class, () -> SaveFile.read(path), "effect count " + effectCount);
+        }
+
+        GameState state = wiredLevel();
+        for (int i = 0; i < 300; i++) {
+            state.update(TICK);
+        }
+        ByteBuffer valid = SaveFile.encode(1, new double[0], state);
+        byte[] bytes = new byte[valid.remaining()];
+        valid.get(bytes);
+        // Flipping bytes anywhere must never get past a checked exception
+        Random random = new Random(5);
+        for (int round = 0; round < 200; round++) {
+            byte[] corrupt = bytes.clone();
+            for (int k = 0; k < 4; k++) {
+                corrupt[random.nextInt(corrupt.length)] = (byte) random.nextInt();
+            }
+            Files.write(path, corrupt);
+            try {
+                SaveFile.read(path);
+            } catch (IOException expected) {
+                // Reported as corrupt; a flip inside a double can also load fine
+            }
+        }
+    }
+
+    // A corrupt image is rejected with a checked kind of failure before any of it is applied
+    @Test
+    void corruptImagesLeaveTheStateAlone() throws IOException {
+        GameState source = wiredLevel();
+        for (int i = 0; i < 300; i++) {
+            source.update(TICK);
+        }
+        source.addPacket(new SquarePacket(300, 300, null));
+        source.addPacket(new TrianglePacket(302, 300, null));
+        source.update(TICK);
+        byte[] bytes = image(source);
+
+        GameState target = wiredLevel();
+        for (int i = 0; i < 100; i++) {
+            target.update(TICK);
+        }
+        byte[] before = image(target);
+        Random random = new Random(24);
+        int rejected = 0;
+        for (int round = 0; round < 1_000; round++) {
+            byte[] corrupt = bytes.clone();
+            for (int k = 1 + random.nextInt(4); k > 0; k--) {
+                corrupt[random.nextInt(corrupt.length)] = (byte) random.nextInt();
+            }
+            try {
+                target.readState(ByteBuffer.wrap(corrupt));
+                // A flip inside a double can load fine; start over from the same state
+                target.readState(ByteBuffer.wrap(before));
+            } catch (IllegalStateException | BufferUnderflowException e) {
+                rejected++;
+            }
+            assertArrayEquals(before, image(target), "round " + round);
+        }
+        assertTrue(rejected > 100, "only " + rejected + " rejected");
+    }
+
+    @Test
+    void writeUtfMatchesDataOutputStream() throws IOException {
+        String text = "plain \u0000 café € 😀";
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new DataOutputStream(expected).writeUTF(text);
+
+        BufferOutput out = new BufferOutput(1);
+        out.writeUTF(text);
+        ByteBuffer written = out.toBuffer();
+        byte[] actual = new byte[written.remaining()];
+        written.get(actual);
+        assertArrayEquals(expected.toByteArray(), actual);
+    }
+
+    static byte[] image(GameState state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        state.writeState(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // Level 1 with every output wired to a matching input on the next system
+    static GameState wiredLevel() {
+        GameState state = GameState.fromLevel(LevelConfig.load(1));
+        state.setRemainingWireLength(1e6);
+        List<NetworkSystem> systems = state.getSystems();
+        for (int i = 0; i < systems.size(); i++) {
+            NetworkSystem next = systems.get((i + 1) % systems.size());
+            for (Port out : systems.get(i).getOutputPorts()) {
+                for (Port in : next.getInputPorts()) {
+                    if (!in.isOccupied() && in.getType() == out.getType()) {
+                        state.addConnection(out, in);
+                        break;
+                    }
+                }
+            }
+        }
+        return state;
+    }
+}
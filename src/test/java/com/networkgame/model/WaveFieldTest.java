@@ -0,0 +1,83 @@
+package com.networkgame.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class WaveFieldTest {
+    private static final double TICK = 1.0 / 60;
+    // Long enough for the wave to fade out and the packet to travel on afterwards
+    private static final int TICKS = 60;
+
+    // A packet cruising along its wire is knocked sideways once, in the tick the front
+    // passes it, and keeps that offset for as long as it follows the wire
+    @Test
+    void frontDisplacesAPacketOnAWireOnce() {
+        double[] plain = run(false, true);
+        double[] pushed = run(true, true);
+
+        int pushes = 0;
+        double previousDx = 0;
+        double previousDy = 0;
+        for (int t = 0; t < TICKS; t++) {
+            double dx = pushed[2 * t] - plain[2 * t];
+            double dy = pushed[2 * t + 1] - plain[2 * t + 1];
+            if (Math.abs(dx - previousDx) > 1e-9 || Math.abs(dy - previousDy) > 1e-9) {
+                pushes++;
+            }
+            previousDx = dx;
+            previousDy = dy;
+        }
+        assertEquals(1, pushes, "ticks in which the packet was pushed");
+        // Away from a centre below the wire, and still off it at the end
+        assertTrue(previousDy < -0.5, "offset at the end: " + previousDy);
+    }
+
+    // With the Atar effect on, waves still spread and fade but push nothing
+    @Test
+    void disabledWavesLeaveThePacketAlone() {
+        assertArrayEquals(run(false, true), run(true, false));
+    }
+
+    // The packet's position after every tick, with or without a wave starting beside it
+    private static double[] run(boolean wave, boolean wavesEnabled) {
+        GameState state = new GameState();
+        state.setRemainingWireLength(1e6);
+        NetworkSystem source = new NetworkSystem(0, 0, 100, 100, false);
+        source.addOutputPort(PortType.SQUARE);
+        NetworkSystem sink = new NetworkSystem(1000, 0, 100, 100, false);
+        sink.addInputPort(PortType.SQUARE);
+        state.addSystem(source);
+        state.addSystem(sink);
+        state.addConnection(source.getOutputPorts().get(0), sink.getInputPorts().get(0));
+        Connection wire = state.getConnections().get(0);
+
+        PacketStore store = state.getPacketStore();
+        store.add(new SquarePacket(0, 0, null));
+        store.launch(0, wire);
+        int segment = wire.segmentAt(300, 0);
+        store.travelled[0] = 300;
+        store.segment[0] = segment;
+        store.x[0] = wire.xAt(segment, 300);
+        store.y[0] = wire.yAt(segment, 300);
+        store.speed[0] = store.maxSpeed[0];
+
+        state.setImpactWavesEnabled(wavesEnabled);
+        if (wave) {
+            state.getActiveImpactWaves().add(new ImpactWave(store.x[0] + 10, store.y[0] + 40, 0.5));
+        }
+        double[] positions = new double[2 * TICKS];
+        for (int t = 0; t < TICKS; t++) {
+            state.update(TICK);
+            positions[2 * t] = store.x[0];
+            positions[2 * t + 1] = store.y[0];
+        }
+        assertFalse(state.isGameOver());
+        assertTrue(state.getActiveImpactWaves().isEmpty(), "wave faded out");
+        assertEquals(1, store.size());
+        return positions;
+    }
+}
@@ -0,0 +1,95 @@
+package com.networkgame.ui;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.networkgame.model.GameState;
+import com.networkgame.model.LevelConfig;
+import com.networkgame.model.SquarePacket;
+import com.networkgame.model.TrianglePacket;
+import java.awt.Graphics2D;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+// The render half of model.AllocationTest: once the static layer and labels are
+// cached, a frame of packets and waves through a zoomed camera must not allocate
+class RenderAllocationTest {
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 300;
+    private static final int WARMUP_FRAMES = 1_000;
+    private static final int MEASURED_FRAMES = 2_000;
+    // Java2D's own temporaries only vanish once its paths are compiled, which takes longer
+    // after other tests have kept the compiler busy; the quietest run of frames is judged
+    private static final int MAX_RUNS = 8;
+    // Leaves room for one-off JIT and class-loading noise, far below one object per frame
+    private static final long MAX_ALLOCATED_BYTES = 64 * 1024;
+
+    private GamePanel panel;
+
+    @AfterEach
+    void stopPanel() {
+        if (panel != null) {
+            panel.stopGameLoop();
+        }
+    }
+
+    // Enough packets on screen to be filled as one batched path per type. Fewer are filled
+    // one antialiased shape at a time, where Java2D itself allocates a path iterator per shape
+    @Test
+    void steadyStateFrameDoesNotAllocate() {
+        assertFramesDoNotAllocate(2_000);
+    }
+
+    private void assertFramesDoNotAllocate(int packets) {
+        System.setProperty("java.awt.headless", "true");
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        GameState gameState = GameState.fromLevel(LevelConfig.load(2));
+        Random random = new Random(17);
+        for (int i = 0; i < packets; i++) {
+            double x = random.nextDouble() * WIDTH;
+            double y = random.nextDouble() * HEIGHT;
+            gameState.addPacket(i % 2 == 0 ? new SquarePacket(x, y, null) : new TrianglePacket(x, y, null));
+        }
+        panel = new GamePanel(null);
+        panel.stopGameLoop();
+        panel.setGameState(gameState);
+        panel.setSize(WIDTH, HEIGHT);
+        // Touching packets leave waves in flight; the frames below draw this one step
+        gameState.update(1.0 / 60);
+        assertFalse(gameState.getActiveImpactWaves().isEmpty(), "waves in flight");
+        panel.mouseWheelMoved(new MouseWheelEvent(panel, MouseWheelEvent.MOUSE_WHEEL, 0, 0, 150, 100, 0, false,
+            MouseWheelEvent.WHEEL_UNIT_SCROLL, 1, -3));
+
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            for (int i = 0; i < WARMUP_FRAMES; i++) {
+                panel.renderFrame(graphics);
+            }
+            long allocated = Long.MAX_VALUE;
+            for (int run = 0; run < MAX_RUNS && allocated > MAX_ALLOCATED_BYTES; run++) {
+                long before = threads.getThreadAllocatedBytes(threadId);
+                for (int i = 0; i < MEASURED_FRAMES; i++) {
+                    panel.renderFrame(graphics);
+                }
+                allocated = Math.min(allocated, threads.getThreadAllocatedBytes(threadId) - before);
+            }
+
+            assertTrue(allocated <= MAX_ALLOCATED_BYTES,
+                MEASURED_FRAMES + " frames allocated " + allocated + " bytes, limit is " + MAX_ALLOCATED_BYTES);
+        } finally {
+            graphics.dispose();
+        }
+    }
+}
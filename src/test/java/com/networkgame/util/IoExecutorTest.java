@@ -0,0 +1,44 @@
+package com.networkgame.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class IoExecutorTest {
+    // With every thread busy and the queue full, further tasks still run and their futures complete
+    @Test
+    void saturationNeverLosesATask() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                int value = i;
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    // Only the ones that reach a pool thread wait; those run by the submitter cannot
+                    if (Thread.currentThread().getName().startsWith("io-") || IoExecutor.usesVirtualThreads()) {
+                        await(release);
+                    }
+                    return value;
+                }, IoExecutor.get()));
+            }
+        } finally {
+            release.countDown();
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.networkgame.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RepeatedAdditionTest {
+    private static final double[] STEPS = {1.0 / 60, 1.0 / 120, -1.0 / 60, 0.1, 1e-3, 3.0, -0.7, 0.5, 1.0 / 3};
+
+    @Test
+    void matchesTheLoopBitForBit() {
+        Random random = new Random(3);
+        for (int round = 0; round < 20_000; round++) {
+            double x;
+            switch (round % 4) {
+                case 0:
+                    x = 0;
+                    break;
+                case 1:
+                    x = random.nextDouble() * 200 - 100;
+                    break;
+                case 2:
+                    // Right on a binade boundary, either side of zero
+                    x = Math.scalb(random.nextBoolean() ? 1.0 : -1.0, random.nextInt(20) - 10);
+                    break;
+                default:
+                    x = (random.nextInt(2000) - 1000) * 0.5;
+                    break;
+            }
+            double step;
+            if (round % 5 == 0) {
+                // Around half a grid step, where rounding flips between moving and not
+                step = random.nextDouble() * Math.ulp(x) * 2;
+            } else if (round % 3 == 0) {
+                step = STEPS[random.nextInt(STEPS.length)];
+            } else {
+                step = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(6) - 4);
+            }
+            int times = random.nextInt(round % 11 == 0 ? 20_000 : 2_000);
+
+            double expected = x;
+            for (int i = 0; i < times; i++) {
+                expected += step;
+            }
+            double actual = RepeatedAddition.add(x, step, times);
+            assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual),
+                x + " + " + times + " x " + step + ": " + expected + " vs " + actual);
+        }
+    }
+
+    // A whole level's worth of ticks takes a handful of operations, not one per tick
+    @Test
+    void takesSteadyRunsAtOnce() {
+        assertEquals(0, RepeatedAddition.steadySteps(Math.scalb(1.0, 6), -1.0 / 60));
+        long steady = RepeatedAddition.steadySteps(100.0, -1.0 / 60);
+        assertEquals(100.0 - 64.0, steady * -RepeatedAddition.steadyIncrement(100.0, -1.0 / 60), 1.0);
+    }
+}
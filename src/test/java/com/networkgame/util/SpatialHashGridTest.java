@@ -0,0 +1,101 @@
+package com.networkgame.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class SpatialHashGridTest {
+    private static final double CELL_SIZE = 8.0;
+    private static final double RADIUS = 8.0;
+
+    @Test
+    void findsExactlyTheCloseOnesAsBruteForce() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            int count = 1 + random.nextInt(400);
+            double side = 20 + random.nextDouble() * 400;
+            double[] xs = new double[count];
+            double[] ys = new double[count];
+            for (int i = 0; i < count; i++) {
+                // Some negative coordinates so cells on both sides of zero are covered
+                xs[i] = random.nextDouble() * side - side / 3;
+                ys[i] = random.nextDouble() * side - side / 3;
+            }
+
+            Set<Long> expected = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                for (int j = i + 1; j < count; j++) {
+                    if (close(xs, ys, i, j)) expected.add(key(i, j));
+                }
+            }
+
+            SpatialHashGrid grid = new SpatialHashGrid(CELL_SIZE);
+            grid.rebuild(xs, ys, count);
+            Set<Long> found = new HashSet<>();
+            grid.forEachCandidatePair((first, second) -> {
+                if (close(xs, ys, first, second)) {
+                    assertTrue(found.add(key(first, second)), "pair visited twice");
+                }
+            });
+            assertEquals(expected, found, "round " + round);
+        }
+    }
+
+    // After moving some points, every point near a query is still visited, once
+    @Test
+    void neighbourhoodFollowsRelocatedPoints() {
+        Random random = new Random(8);
+        for (int round = 0; round < 50; round++) {
+            int count = 1 + random.nextInt(300);
+            double side = 20 + random.nextDouble() * 300;
+            double[] xs = new double[count];
+            double[] ys = new double[count];
+            for (int i = 0; i < count; i++) {
+                xs[i] = random.nextDouble() * side - side / 3;
+                ys[i] = random.nextDouble() * side - side / 3;
+            }
+            SpatialHashGrid grid = new SpatialHashGrid(CELL_SIZE);
+            grid.rebuild(xs, ys, count);
+
+            for (int move = random.nextInt(2 * count); move > 0; move--) {
+                // Some points move more than once, some back into the cell they started in
+                int i = random.nextInt(count);
+                xs[i] += random.nextGaussian() * 12;
+                ys[i] += random.nextGaussian() * 12;
+                grid.relocate(i, xs[i], ys[i]);
+            }
+
+            for (int query = 0; query < 40; query++) {
+                double x = random.nextDouble() * side - side / 3;
+                double y = random.nextDouble() * side - side / 3;
+                Set<Integer> visited = new HashSet<>();
+                grid.forEachNear(x, y, entry -> assertTrue(visited.add(entry), "entry visited twice"));
+                Set<Integer> relocated = new HashSet<>();
+                grid.forEachRelocatedNear(x, y, entry -> assertTrue(relocated.add(entry), "entry visited twice"));
+                for (int i = 0; i < count; i++) {
+                    double dx = xs[i] - x;
+                    double dy = ys[i] - y;
+                    if (dx * dx + dy * dy < RADIUS * RADIUS) {
+                        assertTrue(visited.contains(i), "round " + round + " missed " + i);
+                    }
+                    assertEquals(visited.contains(i) && grid.isRelocated(i), relocated.contains(i),
+                        "round " + round + " relocated " + i);
+                }
+            }
+        }
+    }
+
+    private static boolean close(double[] xs, double[] ys, int a, int b) {
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        return dx * dx + dy * dy < RADIUS * RADIUS;
+    }
+
+    private static long key(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+}